@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Forge Development LLC
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package buildsrc;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a launcher directory for the shaded jar, with an AppCDS archive so the many short lived runs
+ * of the provisioner don't have to load and verify the same few hundred classes every time.
+ * <p>
+ * The jar is run once for each training run with {@code -XX:DumpLoadedClassList}, the lists are merged,
+ * and then dumped into an archive with {@code -Xshare:dump}. Archives only work with the exact JVM that
+ * made them, so the relevant lines of that JDK's release file are saved next to it for the launcher
+ * script to compare against. JDKs older than 10 can't archive application classes, for those only the
+ * jar and launcher are written.
+ */
+public abstract class AppCdsTask extends DefaultTask {
+    public static final String JAR = "java-provisioner.jar";
+    public static final String ARCHIVE = "java-provisioner.jsa";
+    private static final String MAIN = "net.minecraftforge.java_provisioner.Main";
+    // Must match the keys the launcher script greps for
+    private static final Pattern RELEASE_KEYS = Pattern.compile("^(JAVA_VERSION|JAVA_RUNTIME_VERSION|IMPLEMENTOR|OS_ARCH)=.*");
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getJar();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getScript();
+
+    @Nested
+    public abstract Property<JavaLauncher> getLauncher();
+
+    /** Arguments for each training run, space separated */
+    @Input
+    public abstract ListProperty<String> getTrainingRuns();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @Inject
+    protected abstract ProjectLayout getLayout();
+
+    @Inject
+    protected abstract ExecOperations getExec();
+
+    public AppCdsTask() {
+        this.getOutputDirectory().convention(this.getLayout().getBuildDirectory().dir(this.getName()));
+    }
+
+    @TaskAction
+    public void run() throws IOException {
+        File output = getOutputDirectory().getAsFile().get();
+        File jar = new File(output, JAR);
+        File archive = new File(output, ARCHIVE);
+        File stamp = new File(output, ARCHIVE + ".release");
+        File classes = new File(output, "classes.lst");
+        File work = new File(getTemporaryDir(), "cache");
+
+        Files.copy(getJar().getAsFile().get().toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        File script = new File(output, getScript().getAsFile().get().getName());
+        Files.copy(getScript().getAsFile().get().toPath(), script.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        script.setExecutable(true);
+
+        archive.delete();
+        stamp.delete();
+        JavaLauncher launcher = getLauncher().get();
+        int version = launcher.getMetadata().getLanguageVersion().asInt();
+        if (version < 10) {
+            getLogger().warn("Java " + version + " can not archive application classes, skipping AppCDS archive");
+            return;
+        }
+
+        String java = launcher.getExecutablePath().getAsFile().getAbsolutePath();
+        Set<String> merged = new LinkedHashSet<>();
+        int run = 0;
+        for (String args : getTrainingRuns().get()) {
+            File list = new File(getTemporaryDir(), "classes-" + run++ + ".lst");
+            List<String> cmd = new ArrayList<>(Arrays.asList(
+                "-Xshare:off",
+                "-XX:DumpLoadedClassList=" + list.getAbsolutePath(),
+                "-cp", jar.getAbsolutePath(),
+                MAIN
+            ));
+            for (String arg : args.trim().split(" +"))
+                cmd.add(arg.replace("{cache}", work.getAbsolutePath()));
+
+            getExec().exec(spec -> {
+                spec.setExecutable(java);
+                spec.args(cmd);
+                spec.setIgnoreExitValue(true); // Training runs are allowed to fail, we only want the classes they loaded
+                spec.setStandardOutput(new ByteArrayOutputStream());
+                spec.setErrorOutput(new ByteArrayOutputStream());
+            });
+
+            if (list.exists()) {
+                for (String line : Files.readAllLines(list.toPath(), StandardCharsets.UTF_8)) {
+                    // Ids are per run, and only needed for classes from custom loaders which can't be merged anyway
+                    if (line.isEmpty() || line.startsWith("#") || line.contains(" source: "))
+                        continue;
+                    int idx = line.indexOf(" id: ");
+                    merged.add(idx == -1 ? line : line.substring(0, idx));
+                }
+            }
+        }
+        Files.write(classes.toPath(), merged, StandardCharsets.UTF_8);
+
+        getExec().exec(spec -> {
+            spec.setExecutable(java);
+            spec.args(
+                "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classes.getAbsolutePath(),
+                "-XX:SharedArchiveFile=" + archive.getAbsolutePath(),
+                "-cp", jar.getAbsolutePath()
+            );
+            spec.setStandardOutput(new ByteArrayOutputStream());
+        });
+
+        File release = new File(launcher.getMetadata().getInstallationPath().getAsFile(), "release");
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(release.toPath(), StandardCharsets.UTF_8)) {
+            if (RELEASE_KEYS.matcher(line).matches())
+                lines.add(line);
+        }
+        Files.write(stamp.toPath(), lines, StandardCharsets.UTF_8);
+
+        getLogger().lifecycle("AppCDS archive: " + merged.size() + " classes, " + archive.length() / 1024 + " KB, Java " + version);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Builds a synthetic {@code /packages} payload shaped like the ones the disco API returns.
+ * Every entry has the same fields as a recorded response, and the distro/version/os/arch spread
+ * gives a catalog of a few thousand packages, which is about what the real API returns for our query.
+ */
+public class Catalog {
+    private static final String[] DISTROS = { "temurin", "zulu", "corretto", "liberica", "sap_machine", "microsoft", "semeru", "graalvm_community", "oracle_open_jdk", "aoj" };
+    private static final int[] VERSIONS = { 8, 11, 17, 21, 22, 23 };
+    private static final int UPDATES = 8;
+    private static final String[][] PLATFORMS = {
+        // os, arch, archive, libc
+        { "linux",        "x64",     "tar.gz", "glibc"     },
+        { "linux",        "aarch64", "tar.gz", "glibc"     },
+        { "linux_musl",   "x64",     "tar.gz", "musl"      },
+        { "alpine_linux", "x64",     "tar.gz", "musl"      },
+        { "windows",      "x64",     "zip",    "c_std_lib" },
+        { "windows",      "x86",     "zip",    "c_std_lib" },
+        { "macos",        "x64",     "tar.gz", "libc"      },
+        { "macos",        "aarch64", "zip",    "libc"      }
+    };
+
+    /** The raw API response, a json object with a result array */
+    public static String response() {
+        return "{\"result\":" + packages() + ",\"message\":\"\"}";
+    }
+
+    /** A bare json array of packages, the format Disco stores in its cache */
+    public static String packages() {
+        StringBuilder buf = new StringBuilder(8 * 1024 * 1024);
+        buf.append('[');
+        int id = 0;
+        for (String distro : DISTROS) {
+            for (int version : VERSIONS) {
+                for (int update = 0; update < UPDATES; update++) {
+                    for (String[] platform : PLATFORMS) {
+                        if (id != 0)
+                            buf.append(',');
+                        entry(buf, id++, distro, version, update, platform);
+                    }
+                }
+            }
+        }
+        return buf.append(']').toString();
+    }
+
+    /** Writes the package list to a cache directory, so an offline {@link Disco} can read it */
+    public static void write(File cache) throws IOException {
+        cache.mkdirs();
+        Files.write(new File(cache, "packages.json").toPath(), packages().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int count() {
+        return DISTROS.length * VERSIONS.length * UPDATES * PLATFORMS.length;
+    }
+
+    private static void entry(StringBuilder buf, int id, String distro, int major, int update, String[] platform) {
+        String version = major == 8 ? "8.0." + (302 + update * 10) + "+" + (update + 1) : major + ".0." + update + "+" + (update + 7);
+        String hash = String.format(Locale.ENGLISH, "%032x", id * 2654435761L);
+        String filename = distro + "-jdk" + version.replace('+', '_') + '-' + platform[0] + '_' + platform[1] + '.' + platform[2];
+        buf.append('{')
+            .append("\"id\":\"").append(hash).append("\",")
+            .append("\"archive_type\":\"").append(platform[2]).append("\",")
+            .append("\"distribution\":\"").append(distro).append("\",")
+            .append("\"major_version\":").append(major).append(',')
+            .append("\"java_version\":\"").append(version).append("\",")
+            .append("\"distribution_version\":\"").append(version).append("\",")
+            .append("\"jdk_version\":").append(major).append(',')
+            .append("\"latest_build_available\":").append(update == UPDATES - 1).append(',')
+            .append("\"release_status\":\"ga\",")
+            .append("\"term_of_support\":\"").append(major % 2 == 0 ? "sts" : "lts").append("\",")
+            .append("\"operating_system\":\"").append(platform[0]).append("\",")
+            .append("\"lib_c_type\":\"").append(platform[3]).append("\",")
+            .append("\"architecture\":\"").append(platform[1]).append("\",")
+            .append("\"fpu\":\"unknown\",")
+            .append("\"package_type\":\"jdk\",")
+            .append("\"javafx_bundled\":false,")
+            .append("\"directly_downloadable\":true,")
+            .append("\"filename\":\"").append(filename).append("\",")
+            .append("\"links\":{")
+                .append("\"pkg_info_uri\":\"https://api.foojay.io/disco/v3.0/ids/").append(hash).append("\",")
+                .append("\"pkg_download_redirect\":\"https://api.foojay.io/disco/v3.0/ids/").append(hash).append("/redirect\"")
+            .append("},")
+            .append("\"free_use_in_production\":true,")
+            .append("\"tck_tested\":\"unknown\",")
+            .append("\"tck_cert_uri\":\"\",")
+            .append("\"aqavit_certified\":\"unknown\",")
+            .append("\"aqavit_cert_uri\":\"\",")
+            .append("\"size\":").append(180_000_000 + id).append(',')
+            .append("\"feature\":[]")
+            .append('}');
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+import net.minecraftforge.java_provisioner.Disco.Distro;
+import net.minecraftforge.java_provisioner.util.OS;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscoBenchmark {
+    @Param({"17", "-1"})
+    public int version;
+
+    private String response;
+    private File cache;
+    private Disco disco;
+
+    @Setup
+    public void setup() throws IOException {
+        response = Catalog.response();
+        cache = Files.createTempDirectory("disco-bench").toFile();
+        Catalog.write(cache);
+        disco = new Disco(cache, true);
+    }
+
+    @TearDown
+    public void teardown() {
+        new File(cache, "packages.json").delete();
+        cache.delete();
+    }
+
+    /** Decoding a full {@code /packages} response */
+    @Benchmark
+    public List<Disco.Package> parseResponse() {
+        return new Disco.Response<>(response, Disco.Package.class).entries();
+    }
+
+    /** Reading the cached catalog, filtering it to one platform and sorting the candidates */
+    @Benchmark
+    public List<Disco.Package> getPackages() {
+        return disco.getPackages(version, OS.LINUX, Distro.TEMURIN, Arch.X64);
+    }
+
+    /** Same as above, but across all distros so the sort has more to do */
+    @Benchmark
+    public List<Disco.Package> getPackagesAnyDistro() {
+        return disco.getPackages(version, OS.LINUX, null, Arch.X64);
+    }
+}
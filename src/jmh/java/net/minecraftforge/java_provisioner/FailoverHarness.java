@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import net.minecraftforge.util.logging.Log;
+
+/**
+ * Runs catalog and package info lookups against two {@link FakeDiscoServer}s, where the preferred one is either
+ * failing or slow, and reports how long each lookup took and which server answered it.
+ * <p>
+ * Run with {@code gradlew failoverHarness --args="--mode slow --latency 500"}
+ */
+public class FailoverHarness {
+    public static void main(String[] args) throws Exception {
+        OptionParser parser = new OptionParser();
+        OptionSpec<Void> helpO = parser.accepts("help", "Displays this help message and exits");
+        OptionSpec<String> modeO = parser.accepts("mode", "What is wrong with the preferred server, failing or slow")
+            .withRequiredArg().defaultsTo("failing");
+        OptionSpec<Long> latencyO = parser.accepts("latency", "Milliseconds of latency the slow server adds to every request")
+            .withRequiredArg().ofType(Long.class).defaultsTo(500L);
+        OptionSpec<Integer> iterationsO = parser.accepts("iterations", "Number of lookups to make")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(10);
+        OptionSpec<Void> recoverO = parser.accepts("recover", "Fix the preferred server half way through");
+
+        OptionSet options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(Log.INFO);
+            return;
+        }
+
+        String mode = options.valueOf(modeO);
+        if (!"failing".equals(mode) && !"slow".equals(mode)) {
+            Log.error("Unknown mode: " + mode);
+            System.exit(1);
+        }
+
+        int iterations = options.valueOf(iterationsO);
+        File root = Files.createTempDirectory("failover-harness").toFile();
+        try (FakeDiscoServer primary = new FakeDiscoServer(Disco.Archive.TAR_GZ, 10, 1024);
+             FakeDiscoServer secondary = new FakeDiscoServer(Disco.Archive.TAR_GZ, 10, 1024)) {
+            if ("failing".equals(mode))
+                primary.failing(true);
+            else
+                primary.latency(options.valueOf(latencyO));
+
+            // Shared so health carries over between lookups, like it would between runs through the cache
+            DiscoProviders providers = new DiscoProviders(Arrays.asList(primary.url(), secondary.url()));
+
+            Log.info(String.format(Locale.ENGLISH, "%-5s %10s %8s %10s", "Run", "Time (ms)", "Primary", "Secondary"));
+            for (int x = 0; x < iterations; x++) {
+                if (options.has(recoverO) && x == iterations / 2) {
+                    primary.failing(false).latency(0);
+                    Log.info("Primary recovered");
+                }
+
+                int before1 = primary.requests();
+                int before2 = secondary.requests();
+                File cache = new File(root, "run" + x);
+                Disco disco = new Disco(cache, providers, false);
+
+                long start = System.nanoTime();
+                List<Disco.Package> pkgs = disco.getPackages(17);
+                if (pkgs == null || pkgs.isEmpty() || disco.getInfo(pkgs.get(0)) == null)
+                    throw new IllegalStateException("Lookup failed on run " + x);
+                long elapsed = System.nanoTime() - start;
+
+                Log.info(String.format(Locale.ENGLISH, "%-5d %10.2f %8d %10d", x, elapsed / 1_000_000.0,
+                    primary.requests() - before1, secondary.requests() - before2));
+                FakeDiscoServer.delete(cache);
+            }
+
+            for (DiscoProviders.Endpoint endpoint : providers.endpoints())
+                Log.info(endpoint.toString());
+        } finally {
+            FakeDiscoServer.delete(root);
+        }
+    }
+}
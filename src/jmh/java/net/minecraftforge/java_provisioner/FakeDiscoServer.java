@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+
+/**
+ * A local stand-in for the disco API, so provisioning can be measured without touching the network.
+ * <p>
+ * Implements {@code /packages}, {@code /ids/{id}} and {@code /ids/{id}/redirect}, plus checksum files and
+ * the archives themselves. The catalog is a single Temurin 17 package for the current platform, backed by a
+ * synthetic JDK whose {@code bin/java} is a shell script that answers the java probe. So this only works on
+ * posix systems, which is all we run it on.
+ * <p>
+ * Latency is added before every response, and archive downloads can be throttled to a fixed bandwidth.
+ */
+public class FakeDiscoServer implements Closeable {
+    public static final String VERSION = "17.0.9+9";
+    private static final String PREFIX = "jdk-" + VERSION + "/";
+    private static final String ID = "f4c3d15c0000000000000000000017f9";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Disco.Archive archive;
+    private final String filename;
+    private final byte[] data;
+    private final String sha256;
+
+    private volatile long latency = 0;
+    private volatile long bandwidth = 0;
+    private volatile boolean checksumUri = false;
+    private volatile boolean failing = false;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    /**
+     * @param archive   Archive format to serve the JDK as, {@link Disco.Archive#TAR_GZ} or {@link Disco.Archive#ZIP}
+     * @param files     Number of small class-file sized files to put in the JDK, on top of the fixed layout
+     * @param modules   Size in bytes of the fake {@code lib/modules} file
+     */
+    public FakeDiscoServer(Disco.Archive archive, int files, int modules) throws IOException {
+        this.archive = archive;
+        this.filename = "OpenJDK17U-jdk_x64_linux_hotspot_17.0.9_9." + archive.key();
+        this.data = archive == Disco.Archive.ZIP ? zip(layout(files, modules)) : tarGz(layout(files, modules));
+        this.sha256 = sha256(this.data);
+
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread ret = new Thread(r, "FakeDiscoServer");
+            ret.setDaemon(true);
+            return ret;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /** The provider url to hand to {@link Disco} */
+    public String url() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/disco/v3.0";
+    }
+
+    /** Delay in milliseconds added before every response */
+    public FakeDiscoServer latency(long millis) {
+        this.latency = millis;
+        return this;
+    }
+
+    /** Bytes per second to throttle archive downloads to, 0 for unlimited */
+    public FakeDiscoServer bandwidth(long bytesPerSecond) {
+        this.bandwidth = bytesPerSecond;
+        return this;
+    }
+
+    /** Serve the checksum as a separate checksum_uri instead of inline in the package info, costing another round trip */
+    public FakeDiscoServer checksumUri(boolean value) {
+        this.checksumUri = value;
+        return this;
+    }
+
+    /** Answer every request with a 503, to simulate an endpoint that is down */
+    public FakeDiscoServer failing(boolean value) {
+        this.failing = value;
+        return this;
+    }
+
+    public String filename() {
+        return this.filename;
+    }
+
+    public long archiveSize() {
+        return this.data.length;
+    }
+
+    public int requests() {
+        return this.requests.get();
+    }
+
+    public long bytesServed() {
+        return this.bytesServed.get();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            this.requests.incrementAndGet();
+            if (this.latency > 0)
+                Thread.sleep(this.latency);
+
+            if (this.failing) {
+                send(exchange, 503, "text/plain", "Service Unavailable".getBytes(StandardCharsets.UTF_8), 0);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String base = "/disco/v3.0";
+            String ids = base + "/ids/";
+            if (path.startsWith(base + "/packages")) {
+                send(exchange, 200, "application/json", json("{\"result\":[" + pkg() + "],\"message\":\"\"}"), 0);
+            } else if (path.equals(ids + ID)) {
+                send(exchange, 200, "application/json", json("{\"result\":[" + info() + "],\"message\":\"\"}"), 0);
+            } else if (path.equals(ids + ID + "/redirect")) {
+                exchange.getResponseHeaders().add("Location", root() + "/files/" + this.filename);
+                send(exchange, 302, "text/plain", new byte[0], 0);
+            } else if (path.equals("/files/" + this.filename + ".sha256.txt")) {
+                send(exchange, 200, "text/plain", json(this.sha256 + "  " + this.filename + "\n"), 0);
+            } else if (path.equals("/files/" + this.filename)) {
+                send(exchange, 200, "application/octet-stream", this.data, this.bandwidth);
+            } else {
+                send(exchange, 404, "text/plain", json("Not Found: " + path), 0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int code, String type, byte[] body, long bandwidth) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().add("Content-Type", type);
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length == 0)
+            return;
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (bandwidth <= 0) {
+                out.write(body);
+            } else {
+                // Write in 10ms worth of chunks, sleeping to keep to the requested rate
+                int chunk = (int)Math.max(1024, bandwidth / 100);
+                long start = System.nanoTime();
+                for (int off = 0; off < body.length; off += chunk) {
+                    int len = Math.min(chunk, body.length - off);
+                    out.write(body, off, len);
+                    long due = start + (long)((off + len) * 1_000_000_000.0 / bandwidth);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0)
+                        Thread.sleep(wait / 1_000_000, (int)(wait % 1_000_000));
+                }
+            }
+        }
+        this.bytesServed.addAndGet(body.length);
+    }
+
+    private String root() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    private String pkg() {
+        return "{"
+            + "\"id\":\"" + ID + "\","
+            + "\"archive_type\":\"" + this.archive.key() + "\","
+            + "\"distribution\":\"temurin\","
+            + "\"major_version\":17,"
+            + "\"java_version\":\"" + VERSION + "\","
+            + "\"distribution_version\":\"" + VERSION + "\","
+            + "\"jdk_version\":17,"
+            + "\"latest_build_available\":true,"
+            + "\"release_status\":\"ga\","
+            + "\"term_of_support\":\"lts\","
+            + "\"operating_system\":\"linux\","
+            + "\"lib_c_type\":\"glibc\","
+            + "\"architecture\":\"" + Arch.CURRENT.key() + "\","
+            + "\"fpu\":\"unknown\","
+            + "\"package_type\":\"jdk\","
+            + "\"javafx_bundled\":false,"
+            + "\"directly_downloadable\":true,"
+            + "\"filename\":\"" + this.filename + "\","
+            + "\"links\":{"
+                + "\"pkg_info_uri\":\"" + url() + "/ids/" + ID + "\","
+                + "\"pkg_download_redirect\":\"" + url() + "/ids/" + ID + "/redirect\""
+            + "},"
+            + "\"free_use_in_production\":true,"
+            + "\"size\":" + this.data.length + ","
+            + "\"feature\":[]"
+            + "}";
+    }
+
+    private String info() {
+        return "{"
+            + "\"filename\":\"" + this.filename + "\","
+            + "\"direct_download_uri\":\"" + root() + "/files/" + this.filename + "\","
+            + "\"download_site_uri\":\"\","
+            + "\"signature_uri\":\"\","
+            + "\"checksum_uri\":\"" + root() + "/files/" + this.filename + ".sha256.txt\","
+            + "\"checksum\":\"" + (this.checksumUri ? "" : this.sha256) + "\","
+            + "\"checksum_type\":\"" + (this.checksumUri ? "" : "sha256") + "\""
+            + "}";
+    }
+
+    private static byte[] json(String data) {
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Path -> (mode, data). Shaped like a real JDK, including the content that builds rarely need.
+    private static Map<String, Entry> layout(int files, int modules) {
+        Random rand = new Random(17);
+        Map<String, Entry> ret = new LinkedHashMap<>();
+        String java = "#!/bin/sh\n"
+            + "echo \"JAVA_PROBE: java.home $(cd \"$(dirname \"$0\")/..\" && pwd)\"\n"
+            + "echo \"JAVA_PROBE: java.version " + VERSION.substring(0, VERSION.indexOf('+')) + "\"\n"
+            + "echo \"JAVA_PROBE: java.vendor Eclipse Adoptium\"\n"
+            + "echo \"JAVA_PROBE: java.runtime.version " + VERSION + "\"\n"
+            + "echo \"JAVA_PROBE: java.vm.vendor Eclipse Adoptium\"\n"
+            + "echo \"JAVA_PROBE: os.arch amd64\"\n";
+        ret.put("bin/java", new Entry(0755, json(java)));
+        ret.put("bin/javac", new Entry(0755, json("#!/bin/sh\nexit 0\n")));
+        ret.put("bin/jlink", new Entry(0755, json("#!/bin/sh\nexit 0\n")));
+        ret.put("release", new Entry(0644, json("IMPLEMENTOR=\"Eclipse Adoptium\"\nJAVA_VERSION=\"17.0.9\"\nJAVA_RUNTIME_VERSION=\"" + VERSION + "\"\n")));
+        ret.put("conf/security/java.security", new Entry(0644, random(rand, 64 * 1024)));
+        ret.put("lib/modules", new Entry(0644, random(rand, modules)));
+        ret.put("lib/server/libjvm.so", new Entry(0755, random(rand, 1024 * 1024)));
+        for (int x = 0; x < files; x++)
+            ret.put("lib/classes/Class" + x + ".class", new Entry(0644, random(rand, 1024 + rand.nextInt(3 * 1024))));
+        ret.put("lib/src.zip", new Entry(0644, random(rand, modules / 2)));
+        ret.put("jmods/java.base.jmod", new Entry(0644, random(rand, modules / 4)));
+        ret.put("include/jni.h", new Entry(0644, random(rand, 16 * 1024)));
+        ret.put("legal/java.base/LICENSE", new Entry(0644, random(rand, 16 * 1024)));
+        ret.put("man/man1/java.1", new Entry(0644, random(rand, 16 * 1024)));
+        return ret;
+    }
+
+    // Text-ish random data, so it compresses about as well as a real JDK does rather than not at all
+    private static byte[] random(Random rand, int size) {
+        byte[] ret = new byte[size];
+        for (int x = 0; x < size; x++)
+            ret[x] = (byte)('a' + rand.nextInt(rand.nextInt(25) + 1));
+        return ret;
+    }
+
+    private static byte[] zip(Map<String, Entry> files) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(buf)) {
+            for (Map.Entry<String, Entry> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(PREFIX + file.getKey()));
+                zip.write(file.getValue().data);
+                zip.closeEntry();
+            }
+        }
+        return buf.toByteArray();
+    }
+
+    // Minimal ustar writer, the archives we serve only need regular files
+    private static byte[] tarGz(Map<String, Entry> files) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            for (Map.Entry<String, Entry> file : files.entrySet()) {
+                byte[] data = file.getValue().data;
+                out.write(tarHeader(PREFIX + file.getKey(), file.getValue().mode, data.length));
+                out.write(data);
+                int pad = (512 - data.length % 512) % 512;
+                out.write(new byte[pad]);
+            }
+            out.write(new byte[1024]);
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] tarHeader(String name, int mode, long size) {
+        byte[] ret = new byte[512];
+        put(ret, 0, 100, name);
+        put(ret, 100, 8, String.format("%07o", mode));
+        put(ret, 108, 8, "0000000");
+        put(ret, 116, 8, "0000000");
+        put(ret, 124, 12, String.format("%011o", size));
+        put(ret, 136, 12, String.format("%011o", System.currentTimeMillis() / 1000));
+        put(ret, 148, 8, "        ");
+        ret[156] = '0';
+        put(ret, 257, 6, "ustar");
+        put(ret, 263, 2, "00");
+
+        int sum = 0;
+        for (byte b : ret)
+            sum += b & 0xFF;
+        put(ret, 148, 8, String.format("%06o", sum));
+        ret[154] = 0;
+        ret[155] = ' ';
+        return ret;
+    }
+
+    private static void put(byte[] buf, int off, int len, String value) {
+        byte[] data = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(data, 0, buf, off, Math.min(len, data.length));
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            StringBuilder ret = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data))
+                ret.append(String.format("%02x", b));
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Writes the archive to disk, for things that want to extract it without going through http */
+    public File writeArchive(File dir) throws IOException {
+        File ret = new File(dir, this.filename);
+        dir.mkdirs();
+        Files.write(ret.toPath(), this.data);
+        return ret;
+    }
+
+    /** Recursively deletes a directory, for cleaning up cold caches between runs */
+    public static void delete(File file) throws IOException {
+        if (!file.exists())
+            return;
+        Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+                Files.delete(path);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static class Entry {
+        private final int mode;
+        private final byte[] data;
+
+        private Entry(int mode, byte[] data) {
+            this.mode = mode;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.InstallRanking;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstallSortBenchmark {
+    private static final String[] VENDORS = { "Eclipse Adoptium", "AdoptOpenJDK", "Azul Systems, Inc.", "Amazon.com Inc.", "Oracle Corporation", "BellSoft", "Microsoft", null };
+
+    @Param({"16", "256"})
+    public int size;
+
+    private List<IJavaInstall> installs;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        installs = new ArrayList<>(size);
+        for (int x = 0; x < size; x++) {
+            int major = 8 + rand.nextInt(16);
+            String version = major == 8 ? "1.8.0_" + (300 + rand.nextInt(100)) : major + ".0." + rand.nextInt(20);
+            installs.add(new Install(new File("/opt/jdk" + x), rand.nextInt(4) != 0, major, version, VENDORS[rand.nextInt(VENDORS.length)]));
+        }
+    }
+
+    @Benchmark
+    public List<IJavaInstall> compareTo() {
+        List<IJavaInstall> ret = new ArrayList<>(installs);
+        Collections.sort(ret);
+        return ret;
+    }
+
+    @Benchmark
+    public List<IJavaInstall> ranking() {
+        List<IJavaInstall> ret = new ArrayList<>(installs);
+        InstallRanking.DEFAULT.sort(ret);
+        return ret;
+    }
+
+    private static class Install implements IJavaInstall {
+        private final File home;
+        private final boolean jdk;
+        private final int major;
+        private final String version;
+        private final String vendor;
+
+        private Install(File home, boolean jdk, int major, String version, String vendor) {
+            this.home = home;
+            this.jdk = jdk;
+            this.major = major;
+            this.version = version;
+            this.vendor = vendor;
+        }
+
+        @Override public File home() { return home; }
+        @Override public boolean isJdk() { return jdk; }
+        @Override public int majorVersion() { return major; }
+        @Override public String version() { return version; }
+        @Override public String vendor() { return vendor; }
+    }
+}
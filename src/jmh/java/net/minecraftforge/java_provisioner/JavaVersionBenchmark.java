@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaVersionBenchmark {
+    private static final String[] SAMPLES = {
+        "17.0.9+9", "1.8.0_392", "1.8.0_392-b08", "8.0.392+8", "21.0.1", "22-ea+27", "17-internal+0-adhoc.root.jdk", "11.0.21"
+    };
+
+    private StringBuilder[] uncached;
+    private List<JavaVersion> versions;
+    private JavaVersion a;
+    private JavaVersion b;
+
+    @Setup
+    public void setup() {
+        uncached = new StringBuilder[SAMPLES.length];
+        for (int x = 0; x < SAMPLES.length; x++)
+            uncached[x] = new StringBuilder(SAMPLES[x]);
+
+        Random rand = new Random(42);
+        versions = new ArrayList<>();
+        for (int x = 0; x < 5000; x++) {
+            int major = 8 + rand.nextInt(16);
+            versions.add(JavaVersion.parse(major + ".0." + rand.nextInt(30) + "+" + rand.nextInt(15)));
+        }
+
+        a = JavaVersion.parse("17.0.9+9");
+        b = JavaVersion.parse("17.0.9+10");
+    }
+
+    @Benchmark
+    public void parseCached(Blackhole bh) {
+        for (String s : SAMPLES)
+            bh.consume(JavaVersion.parse(s));
+    }
+
+    @Benchmark
+    public void parseUncached(Blackhole bh) {
+        for (CharSequence s : uncached)
+            bh.consume(JavaVersion.parse(s));
+    }
+
+    @Benchmark
+    public int compare() {
+        return a.compareTo(b);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<JavaVersion> sort() {
+        List<JavaVersion> ret = new ArrayList<>(versions);
+        Collections.sort(ret);
+        return ret;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+
+/**
+ * End to end {@link DiscoLocator#provision(int)} against a {@link FakeDiscoServer}.
+ * A cold cache starts empty every invocation, a warm cache was fully provisioned during setup.
+ * For a per phase breakdown, see {@link ProvisionHarness}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProvisionBenchmark {
+    @Param({"0", "50"})
+    public long latency;
+
+    @Param({"0", "52428800"}) // Unlimited, 50MB/s
+    public long bandwidth;
+
+    @Param({"TAR_GZ", "ZIP"})
+    public Disco.Archive archive;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private FakeDiscoServer server;
+    private File root;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        server = new FakeDiscoServer(archive, 2000, 32 * 1024 * 1024)
+            .latency(latency)
+            .bandwidth(bandwidth);
+        root = Files.createTempDirectory("provision-bench").toFile();
+        if ("warm".equals(cache)) {
+            dir = new File(root, "warm");
+            if (new DiscoLocator(dir, server.url(), false).provision(17) == null)
+                throw new IllegalStateException("Failed to provision warm cache");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cache() throws IOException {
+        if ("cold".equals(cache))
+            dir = Files.createTempDirectory(root.toPath(), "cold").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void clean() throws IOException {
+        if ("cold".equals(cache))
+            FakeDiscoServer.delete(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        server.close();
+        FakeDiscoServer.delete(root);
+    }
+
+    @Benchmark
+    public IJavaInstall provision() {
+        IJavaInstall ret = new DiscoLocator(dir, server.url(), false).provision(17);
+        if (ret == null)
+            throw new IllegalStateException("Failed to provision");
+        return ret;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import net.minecraftforge.java_provisioner.util.ProcessUtils;
+import net.minecraftforge.util.logging.Log;
+
+/**
+ * Runs each provisioning phase in turn against a {@link FakeDiscoServer} and reports how long each took,
+ * averaged over a number of runs, for both a cold cache and a warm one.
+ * <p>
+ * Run with {@code gradlew provisionHarness --args="--latency 50 --bandwidth 10485760"}
+ */
+public class ProvisionHarness {
+    private static final String[] PHASES = { "catalog", "info", "download", "extract", "probe", "total" };
+
+    public static void main(String[] args) throws Exception {
+        OptionParser parser = new OptionParser();
+        OptionSpec<Void> helpO = parser.accepts("help", "Displays this help message and exits");
+        OptionSpec<Long> latencyO = parser.accepts("latency", "Milliseconds of latency to add to every request")
+            .withRequiredArg().ofType(Long.class).defaultsTo(0L);
+        OptionSpec<Long> bandwidthO = parser.accepts("bandwidth", "Bytes per second to throttle downloads to, 0 for unlimited")
+            .withRequiredArg().ofType(Long.class).defaultsTo(0L);
+        OptionSpec<String> archiveO = parser.accepts("archive", "Archive format to serve, tar.gz or zip")
+            .withRequiredArg().defaultsTo("tar.gz");
+        OptionSpec<Integer> filesO = parser.accepts("files", "Number of small files in the fake JDK")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(5000);
+        OptionSpec<Integer> modulesO = parser.accepts("modules", "Size of the fake lib/modules in megabytes")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(64);
+        OptionSpec<Integer> iterationsO = parser.accepts("iterations", "Number of runs to average")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(5);
+        OptionSpec<Void> checksumUriO = parser.accepts("checksum-uri", "Serve checksums as a separate file instead of inline");
+
+        OptionSet options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(Log.INFO);
+            return;
+        }
+
+        Disco.Archive archive = Disco.Archive.byKey(options.valueOf(archiveO));
+        if (archive != Disco.Archive.TAR_GZ && archive != Disco.Archive.ZIP) {
+            Log.error("Unsupported archive format: " + options.valueOf(archiveO));
+            System.exit(1);
+        }
+
+        int iterations = options.valueOf(iterationsO);
+        File root = Files.createTempDirectory("provision-harness").toFile();
+        try (FakeDiscoServer server = new FakeDiscoServer(archive, options.valueOf(filesO), options.valueOf(modulesO) * 1024 * 1024)) {
+            server.latency(options.valueOf(latencyO))
+                .bandwidth(options.valueOf(bandwidthO))
+                .checksumUri(options.has(checksumUriO));
+
+            Log.info("Archive: " + server.filename() + " (" + server.archiveSize() / 1024 + " KB)");
+            Log.info("Latency: " + options.valueOf(latencyO) + "ms, Bandwidth: " + (options.valueOf(bandwidthO) == 0 ? "unlimited" : options.valueOf(bandwidthO) + " B/s"));
+
+            Map<String, long[]> cold = new LinkedHashMap<>();
+            Map<String, long[]> warm = new LinkedHashMap<>();
+            File warmDir = new File(root, "warm");
+            run(server, warmDir, null); // Populate the warm cache, not counted
+
+            for (int x = 0; x < iterations; x++) {
+                File coldDir = new File(root, "cold" + x);
+                run(server, coldDir, cold);
+                FakeDiscoServer.delete(coldDir);
+                run(server, warmDir, warm);
+            }
+
+            Log.info(String.format(Locale.ENGLISH, "%-10s %12s %12s", "Phase", "Cold (ms)", "Warm (ms)"));
+            for (String phase : PHASES) {
+                Log.info(String.format(Locale.ENGLISH, "%-10s %12.2f %12.2f", phase,
+                    cold.get(phase)[0] / 1_000_000.0 / iterations,
+                    warm.get(phase)[0] / 1_000_000.0 / iterations));
+            }
+        } finally {
+            FakeDiscoServer.delete(root);
+        }
+    }
+
+    private static void run(FakeDiscoServer server, File cache, Map<String, long[]> times) {
+        Disco disco = new Disco(cache, server.url(), false);
+        long start = System.nanoTime();
+        long last = start;
+
+        List<Disco.Package> pkgs = disco.getPackages(17);
+        if (pkgs == null || pkgs.isEmpty())
+            throw new IllegalStateException("Failed to get package list");
+        Disco.Package pkg = pkgs.get(0);
+        last = time(times, "catalog", last);
+
+        if (disco.getInfo(pkg) == null)
+            throw new IllegalStateException("Failed to get package info");
+        last = time(times, "info", last);
+
+        if (disco.download(pkg) == null)
+            throw new IllegalStateException("Failed to download package");
+        last = time(times, "download", last);
+
+        File home = disco.extract(pkg);
+        if (home == null)
+            throw new IllegalStateException("Failed to extract package");
+        last = time(times, "extract", last);
+
+        if (ProcessUtils.testJdk(home).meta == null)
+            throw new IllegalStateException("Failed to probe extracted install");
+        time(times, "probe", last);
+        time(times, "total", start);
+    }
+
+    private static long time(Map<String, long[]> times, String phase, long start) {
+        long now = System.nanoTime();
+        if (times != null)
+            times.computeIfAbsent(phase, k -> new long[1])[0] += now - start;
+        return now;
+    }
+}
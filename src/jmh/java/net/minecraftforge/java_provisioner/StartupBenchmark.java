@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import net.minecraftforge.util.logging.Log;
+
+/**
+ * Measures how long the provisioner CLI takes to start and exit, with and without the AppCDS archive
+ * built by the {@code appCds} task. Each run is a fresh JVM, so JMH isn't a good fit here.
+ * <p>
+ * Run with {@code gradlew cdsStartup}, or {@code gradlew cdsStartup --args="--runs 50 -- --all"}
+ * <p>
+ * The archive only removes class loading and verification, so the gain is largest for quick runs such as
+ * {@code --help} or a cache hit, and gets lost in the noise once a run starts probing installs.
+ */
+public class StartupBenchmark {
+    public static void main(String[] args) throws Exception {
+        OptionParser parser = new OptionParser();
+        OptionSpec<Void> helpO = parser.accepts("help", "Displays this help message and exits");
+        OptionSpec<File> javaO = parser.accepts("java", "Java executable to run, must be the one that built the archive")
+            .withRequiredArg().ofType(File.class).required();
+        OptionSpec<File> dirO = parser.accepts("dir", "Directory containing the jar and archive, the output of the appCds task")
+            .withRequiredArg().ofType(File.class).required();
+        OptionSpec<Integer> runsO = parser.accepts("runs", "Number of runs to measure for each mode")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(20);
+        OptionSpec<Integer> warmupO = parser.accepts("warmup", "Number of unmeasured runs first, to warm the file system cache")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(3);
+        OptionSpec<String> argsO = parser.nonOptions("Arguments for the provisioner, defaults to --help");
+
+        OptionSet options = parser.parse(args);
+        if (options.has(helpO)) {
+            parser.printHelpOn(Log.INFO);
+            return;
+        }
+
+        String java = options.valueOf(javaO).getAbsolutePath();
+        File dir = options.valueOf(dirO);
+        File jar = new File(dir, "java-provisioner.jar");
+        File archive = new File(dir, "java-provisioner.jsa");
+        List<String> extra = options.valuesOf(argsO);
+        if (extra.isEmpty())
+            extra = Arrays.asList("--help");
+
+        if (!archive.exists()) {
+            Log.error("Missing " + archive + ", was it built by a JDK older than 10?");
+            System.exit(1);
+        }
+
+        List<String> baseline = command(java, jar, null, extra);
+        List<String> cds = command(java, jar, archive, extra);
+
+        // -Xshare:on fails instead of silently ignoring an archive that can't be used
+        List<String> check = new ArrayList<>(cds);
+        check.set(check.indexOf("-Xshare:auto"), "-Xshare:on");
+        if (run(check) < 0) {
+            Log.error("Archive can not be used by " + java);
+            System.exit(1);
+        }
+
+        int warmup = options.valueOf(warmupO);
+        for (int x = 0; x < warmup; x++) {
+            run(baseline);
+            run(cds);
+        }
+
+        // Alternate modes so that anything else happening on the machine affects both equally
+        int runs = options.valueOf(runsO);
+        long[] base = new long[runs];
+        long[] shared = new long[runs];
+        for (int x = 0; x < runs; x++) {
+            base[x] = run(baseline);
+            shared[x] = run(cds);
+        }
+
+        Log.info(String.format(Locale.ENGLISH, "%-10s %10s %10s %10s", "Mode", "Mean (ms)", "Median", "Min"));
+        report("baseline", base);
+        report("appcds", shared);
+        Log.info(String.format(Locale.ENGLISH, "Improvement: %.1f%%", 100.0 * (1 - mean(shared) / mean(base))));
+    }
+
+    private static List<String> command(String java, File jar, File archive, List<String> extra) {
+        List<String> ret = new ArrayList<>();
+        ret.add(java);
+        if (archive != null)
+            ret.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+        ret.add("-Xshare:auto");
+        ret.add("-cp");
+        ret.add(jar.getAbsolutePath());
+        ret.add("net.minecraftforge.java_provisioner.Main");
+        ret.addAll(extra);
+        return ret;
+    }
+
+    // Returns the wall time in nanoseconds, or -1 if the process failed to start or exited abnormally
+    private static long run(List<String> cmd) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(cmd)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.to(nullFile()))
+            .start();
+        int exit = process.waitFor();
+        long elapsed = System.nanoTime() - start;
+        return exit == 0 || exit == 1 ? elapsed : -1; // 1 is a normal 'could not find java' exit
+    }
+
+    private static File nullFile() {
+        return new File(System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("win") ? "NUL" : "/dev/null");
+    }
+
+    private static void report(String name, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        Log.info(String.format(Locale.ENGLISH, "%-10s %10.1f %10.1f %10.1f", name,
+            mean(times) / 1_000_000.0, sorted[sorted.length / 2] / 1_000_000.0, sorted[0] / 1_000_000.0));
+    }
+
+    private static double mean(long[] times) {
+        long total = 0;
+        for (long time : times)
+            total += time;
+        return (double)total / times.length;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbeResultBenchmark {
+    // Output of the JavaProbe class, as captured from a Temurin 17 install
+    private final List<String> lines = Arrays.asList(
+        "JAVA_PROBE: java.home /usr/lib/jvm/temurin-17-jdk-amd64",
+        "JAVA_PROBE: java.version 17.0.9",
+        "JAVA_PROBE: java.vendor Eclipse Adoptium",
+        "JAVA_PROBE: java.runtime.name OpenJDK Runtime Environment",
+        "JAVA_PROBE: java.runtime.version 17.0.9+9",
+        "JAVA_PROBE: java.vm.name OpenJDK 64-Bit Server VM",
+        "JAVA_PROBE: java.vm.version 17.0.9+9",
+        "JAVA_PROBE: java.vm.vendor Eclipse Adoptium",
+        "JAVA_PROBE: os.arch amd64"
+    );
+    private final File home = new File("/usr/lib/jvm/temurin-17-jdk-amd64");
+
+    @Benchmark
+    public IJavaInstall parse() {
+        return new ProcessUtils.ProbeResult(home, 0, lines).meta;
+    }
+}
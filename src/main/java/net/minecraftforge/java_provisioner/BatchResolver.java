@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.IJavaLocator;
+
+/**
+ * Resolves several major versions at once, such as a build that needs 8, 17 and 21.
+ * <p>
+ * Calling {@link IJavaLocator#find(int)} for each version re-reads the environment, re-scans directories
+ * and re-probes homes every time. This runs {@link IJavaLocator#findAll()} once on every locator, all of
+ * them at the same time, and answers every version from that. Versions nothing was found for are then
+ * provisioned together by {@link DiscoLocator#provision(Collection)}.
+ * <p>
+ * Locators are preferred in the order given, and within a locator its own order, the same as calling
+ * find on each in turn.
+ */
+public class BatchResolver {
+    private final List<IJavaLocator> locators;
+    private final DiscoLocator provisioner;
+
+    /**
+     * @param provisioner Provisions versions the locators didn't find, or null to only search
+     */
+    public BatchResolver(List<IJavaLocator> locators, DiscoLocator provisioner) {
+        this.locators = locators;
+        this.provisioner = provisioner;
+    }
+
+    /**
+     * @return Each version, in the order given, with its install or null if none could be found or provisioned
+     */
+    public Map<Integer, IJavaInstall> resolve(Collection<Integer> versions) {
+        Set<Integer> unique = new LinkedHashSet<>(versions);
+        Map<Integer, IJavaInstall> ret = new LinkedHashMap<>();
+        for (int version : unique)
+            ret.put(version, null);
+        if (unique.isEmpty())
+            return ret;
+
+        List<Integer> missing = new ArrayList<>(unique);
+        for (List<IJavaInstall> found : discover()) {
+            for (IJavaInstall install : found) {
+                Integer major = install.majorVersion();
+                if (missing.remove(major))
+                    ret.put(major, install);
+            }
+            if (missing.isEmpty())
+                return ret;
+        }
+
+        if (this.provisioner != null && !Thread.currentThread().isInterrupted()) {
+            for (Map.Entry<Integer, IJavaInstall> entry : this.provisioner.provision(missing).entrySet())
+                ret.put(entry.getKey(), entry.getValue());
+        }
+        return ret;
+    }
+
+    // The installs of each locator, in the same order as the locators. Failed locators have none.
+    private List<List<IJavaInstall>> discover() {
+        List<CompletableFuture<List<IJavaInstall>>> futures = new ArrayList<>(this.locators.size());
+        for (IJavaLocator locator : this.locators)
+            futures.add(locator.findAllAsync());
+
+        List<List<IJavaInstall>> ret = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<List<IJavaInstall>> future : futures) {
+                try {
+                    ret.add(future.get());
+                } catch (ExecutionException e) {
+                    ret.add(Collections.emptyList());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stops any probes still running
+            for (CompletableFuture<List<IJavaInstall>> future : futures)
+                future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+import net.minecraftforge.java_provisioner.Disco.Distro;
+import net.minecraftforge.java_provisioner.util.OS;
+
+/**
+ * Provisions a matrix of java versions and distributions at once, such as when warming up a CI image.
+ * <p>
+ * Each item goes through the same steps as {@link Disco#extract(Disco.Package)}, but the steps of different
+ * items overlap. Catalog lookups, package info and downloads run on a network pool, extraction runs on a
+ * separate disk pool, so one item can be extracting while the next is still downloading.
+ */
+public class BulkProvisioner {
+    public static final int DEFAULT_NETWORK = 4;
+    public static final int DEFAULT_DISK = 2;
+
+    public static final class Request {
+        public final int version;
+        public final Distro distro;
+
+        public Request(int version, Distro distro) {
+            this.version = version;
+            this.distro = distro;
+        }
+
+        @Override
+        public String toString() {
+            return version + ":" + distro.key();
+        }
+
+        @Override
+        public int hashCode() {
+            return version * 31 + distro.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Request && ((Request)o).version == version && ((Request)o).distro == distro;
+        }
+    }
+
+    public static final class Result {
+        public final Request request;
+        /** The package that was selected, null if none matched */
+        public final Disco.Package pkg;
+        /** The extracted java home, null if this failed */
+        public final File home;
+        /** Why this failed, null on success */
+        public final String error;
+        /** Size of the downloaded archive in bytes */
+        public final long bytes;
+        /** Time spent finding and downloading the package, and extracting it */
+        public final long downloadNanos;
+        public final long extractNanos;
+
+        private Result(Request request, Disco.Package pkg, File home, String error, long bytes, long downloadNanos, long extractNanos) {
+            this.request = request;
+            this.pkg = pkg;
+            this.home = home;
+            this.error = error;
+            this.bytes = bytes;
+            this.downloadNanos = downloadNanos;
+            this.extractNanos = extractNanos;
+        }
+
+        public boolean success() {
+            return home != null;
+        }
+    }
+
+    public static final class Report {
+        public final List<Result> results;
+        public final long nanos;
+
+        private Report(List<Result> results, long nanos) {
+            this.results = results;
+            this.nanos = nanos;
+        }
+
+        public long bytes() {
+            long ret = 0;
+            for (Result result : results)
+                ret += result.bytes;
+            return ret;
+        }
+
+        /** Archive bytes provisioned per second of wall time, across all items. Archives that were already cached count too */
+        public double throughput() {
+            return nanos == 0 ? 0 : bytes() / (nanos / 1_000_000_000.0);
+        }
+
+        public boolean success() {
+            for (Result result : results) {
+                if (!result.success())
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private final Disco disco;
+    private final int network;
+    private final int disk;
+    private OS os;
+    private Arch arch;
+
+    public BulkProvisioner(Disco disco) {
+        this(disco, DEFAULT_NETWORK, DEFAULT_DISK);
+    }
+
+    /**
+     * @param network How many catalog lookups and downloads can run at once
+     * @param disk How many archives can be extracted at once
+     */
+    public BulkProvisioner(Disco disco, int network, int disk) {
+        if (network <= 0 || disk <= 0)
+            throw new IllegalArgumentException("Concurrency limits must be positive: network=" + network + " disk=" + disk);
+        this.disco = disco;
+        this.network = network;
+        this.disk = disk;
+    }
+
+    /** Overrides the OS to provision for, by default this is the {@link Disco#host() host's} */
+    public BulkProvisioner os(OS os) {
+        this.os = os;
+        return this;
+    }
+
+    public BulkProvisioner arch(Arch arch) {
+        this.arch = arch;
+        return this;
+    }
+
+    /**
+     * Parses a matrix spec in the form {@code versions:distros}, for example {@code 8,11,17,21:temurin,zulu}.
+     * The distro half is optional and defaults to temurin. Every version is paired with every distro.
+     */
+    public static List<Request> parse(String spec) {
+        String versions = spec;
+        String distros = Distro.TEMURIN.key();
+        int idx = spec.indexOf(':');
+        if (idx != -1) {
+            versions = spec.substring(0, idx);
+            distros = spec.substring(idx + 1);
+        }
+
+        List<Distro> dists = new ArrayList<>();
+        for (String key : distros.split(",")) {
+            key = key.trim();
+            if (key.isEmpty())
+                continue;
+            Distro distro = Distro.byKey(key.toLowerCase(Locale.ENGLISH));
+            if (distro == null)
+                throw new IllegalArgumentException("Unknown distro \"" + key + "\" in " + spec);
+            dists.add(distro);
+        }
+
+        Set<Request> ret = new LinkedHashSet<>();
+        for (String value : versions.split(",")) {
+            value = value.trim();
+            if (value.isEmpty())
+                continue;
+            int version;
+            try {
+                version = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid version \"" + value + "\" in " + spec);
+            }
+            for (Distro distro : dists)
+                ret.add(new Request(version, distro));
+        }
+
+        if (ret.isEmpty())
+            throw new IllegalArgumentException("Empty provisioning matrix: " + spec);
+        return new ArrayList<>(ret);
+    }
+
+    /**
+     * Provisions every request, blocking until all of them have finished.
+     * Results are in the same order as the requests.
+     */
+    public Report provision(List<Request> requests) {
+        long start = System.nanoTime();
+        ExecutorService net = Executors.newFixedThreadPool(Math.max(1, Math.min(network, requests.size())), factory("net"));
+        ExecutorService io = Executors.newFixedThreadPool(Math.max(1, Math.min(disk, requests.size())), factory("disk"));
+        try {
+            List<CompletableFuture<Result>> futures = new ArrayList<>(requests.size());
+            for (Request request : requests) {
+                futures.add(CompletableFuture
+                    .supplyAsync(() -> download(request), net)
+                    .thenApplyAsync(this::extract, io)
+                    .exceptionally(e -> new Result(request, null, null, String.valueOf(e.getCause() == null ? e : e.getCause()), 0, 0, 0))
+                );
+            }
+
+            List<Result> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<Result> future : futures)
+                results.add(future.join());
+            return new Report(Collections.unmodifiableList(results), System.nanoTime() - start);
+        } finally {
+            net.shutdownNow();
+            io.shutdownNow();
+        }
+    }
+
+    private Result download(Request request) {
+        long start = System.nanoTime();
+        OS os = this.os != null ? this.os : disco.host().os();
+        Arch arch = this.arch != null ? this.arch : disco.host().arch();
+        List<Disco.Package> jdks = disco.getPackages(request.version, os, request.distro, arch);
+        if (jdks == null || jdks.isEmpty())
+            return new Result(request, null, null, "No packages found", 0, System.nanoTime() - start, 0);
+
+        // Info, checksum and archive one after another on this thread, so --network-threads is the real connection limit
+        Disco.Package pkg = jdks.get(0);
+        File archive = disco.download(pkg);
+        long elapsed = System.nanoTime() - start;
+        if (archive == null)
+            return new Result(request, pkg, null, "Failed to download " + pkg.filename, 0, elapsed, 0);
+        return new Result(request, pkg, null, null, archive.length(), elapsed, 0);
+    }
+
+    private Result extract(Result downloaded) {
+        if (downloaded.error != null)
+            return downloaded;
+
+        long start = System.nanoTime();
+        // The archive is already in the cache, so this only extracts
+        File home = disco.extract(downloaded.pkg);
+        long elapsed = System.nanoTime() - start;
+        return new Result(downloaded.request, downloaded.pkg, home, home == null ? "Failed to extract " + downloaded.pkg.filename : null,
+            downloaded.bytes, downloaded.downloadNanos, elapsed);
+    }
+
+    private static ThreadFactory factory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread ret = new Thread(r, "BulkProvisioner-" + name + '-' + count.incrementAndGet());
+            ret.setDaemon(true);
+            return ret;
+        };
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import net.minecraftforge.java_provisioner.Disco.IndexEntry;
+import net.minecraftforge.java_provisioner.util.FileUtils;
+import net.minecraftforge.java_provisioner.util.OS;
+
+/**
+ * Packs part of a {@link Disco} cache into a single file, so it can be carried to machines that would
+ * otherwise have to download it all again, such as fresh CI runners.
+ * <p>
+ * A bundle is a zip holding the catalog, the info index entries of the selected packages, and their
+ * archives and/or extracted installs, laid out the same as the cache. The last entry is a manifest with
+ * the size, SHA-256 and permissions of every file. Both directions are a single pass, files are hashed
+ * as they are written and checked against the manifest once it is reached. Nothing is moved into the
+ * cache until everything has been verified.
+ * <p>
+ * Once imported, {@link Disco} in offline mode and {@link DiscoLocator} can use the packages without
+ * any network access.
+ */
+public class CacheBundle {
+    public static final String MANIFEST = "bundle.json";
+    private static final int FORMAT = 1;
+    private static final String CATALOG = "packages.json";
+    private static final String INDEX = "info.json";
+    private static final String STAGING = ".bundle-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Gson GSON = DiscoAdapters.register(new GsonBuilder()).create();
+
+    private final Disco disco;
+
+    public CacheBundle(Disco disco) {
+        this.disco = disco;
+    }
+
+    /**
+     * Writes the selected packages to a bundle. Packages without anything in the cache are skipped.
+     *
+     * @param archives If the downloaded archives should be included
+     * @param installs If the extracted installs should be included
+     * @return The packages that were included
+     */
+    public List<Disco.Package> exportTo(File bundle, List<Disco.Package> pkgs, boolean archives, boolean installs) throws IOException {
+        File cache = disco.cache();
+        File catalog = new File(cache, CATALOG);
+        if (!catalog.exists())
+            throw new IOException("Missing " + catalog + ", nothing has been cached yet");
+
+        JsonObject files = new JsonObject();
+        JsonArray packages = new JsonArray();
+        Map<String, IndexEntry> index = new LinkedHashMap<>();
+        List<Disco.Package> ret = new ArrayList<>();
+
+        bundle.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(bundle.getAbsolutePath() + ".tmp");
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            zip.setLevel(Deflater.BEST_SPEED);
+            write(zip, CATALOG, catalog, files, buffer);
+
+            for (Disco.Package pkg : pkgs) {
+                File archive = new File(cache, pkg.filename);
+                File install = disco.getExtractedDir(pkg);
+                boolean hasArchive = archives && archive.isFile();
+                boolean hasInstall = installs && new File(install, "bin/java" + OS.CURRENT.exe()).exists();
+                if (!hasArchive && !hasInstall)
+                    continue;
+
+                disco.debug("Bundling " + pkg.filename);
+                JsonObject entry = new JsonObject();
+                entry.addProperty("id", pkg.id);
+                entry.addProperty("filename", pkg.filename);
+
+                if (hasArchive) {
+                    // Already compressed, deflating it again is just wasted time
+                    zip.setLevel(Deflater.NO_COMPRESSION);
+                    write(zip, archive.getName(), archive, files, buffer);
+                    zip.setLevel(Deflater.BEST_SPEED);
+                    entry.addProperty("archive", archive.getName());
+                }
+
+                if (hasInstall) {
+                    Path root = install.toPath();
+                    List<Path> children = new ArrayList<>();
+                    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile())
+                                children.add(path);
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                    for (Path child : children)
+                        write(zip, install.getName() + '/' + root.relativize(child).toString().replace('\\', '/'), child.toFile(), files, buffer);
+                    entry.addProperty("install", install.getName());
+                }
+
+                IndexEntry indexed = disco.indexed(pkg);
+                if (indexed != null)
+                    index.put(pkg.id, indexed);
+
+                packages.add(entry);
+                ret.add(pkg);
+            }
+
+            writeBytes(zip, INDEX, GSON.toJson(index, new TypeToken<Map<String, IndexEntry>>(){}.getType()).getBytes(StandardCharsets.UTF_8), System.currentTimeMillis(), files);
+
+            JsonObject manifest = new JsonObject();
+            manifest.addProperty("format", FORMAT);
+            manifest.addProperty("created", System.currentTimeMillis());
+            manifest.add("packages", packages);
+            manifest.add("files", files);
+
+            zip.putNextEntry(new ZipEntry(MANIFEST));
+            Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            writer.write(manifest.toString());
+            writer.flush();
+            zip.closeEntry();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        Files.move(tmp.toPath(), bundle.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return ret;
+    }
+
+    /**
+     * Unpacks a bundle into the cache, verifying every file against the manifest first. Installs and archives
+     * that are already in the cache are kept, the catalog is replaced if the bundle's is newer.
+     *
+     * @return The filenames of the packages that were imported
+     */
+    public List<String> importFrom(File bundle) throws IOException {
+        File cache = disco.cache();
+        cache.mkdirs();
+        File staging = new File(cache, STAGING + Long.toHexString(System.nanoTime()));
+        try {
+            JsonObject manifest = null;
+            Map<String, String> hashes = new HashMap<>();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            MessageDigest digest = sha256();
+
+            try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(bundle), BUFFER_SIZE))) {
+                for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    String name = entry.getName();
+                    if (entry.isDirectory())
+                        continue;
+
+                    if (MANIFEST.equals(name)) {
+                        ByteArrayOutputStream data = new ByteArrayOutputStream();
+                        for (int len = zip.read(buffer); len != -1; len = zip.read(buffer))
+                            data.write(buffer, 0, len);
+                        manifest = JsonParser.parseString(new String(data.toByteArray(), StandardCharsets.UTF_8)).getAsJsonObject();
+                        continue;
+                    }
+
+                    File out = resolve(staging, name);
+                    out.getParentFile().mkdirs();
+                    digest.reset();
+                    try (OutputStream os = new FileOutputStream(out)) {
+                        for (int len = zip.read(buffer); len != -1; len = zip.read(buffer)) {
+                            digest.update(buffer, 0, len);
+                            os.write(buffer, 0, len);
+                        }
+                    }
+                    hashes.put(name, hex(digest.digest()));
+                }
+            }
+
+            if (manifest == null)
+                throw new IOException("Invalid bundle " + bundle + ", missing " + MANIFEST);
+            if (manifest.get("format").getAsInt() != FORMAT)
+                throw new IOException("Unsupported bundle format " + manifest.get("format") + " in " + bundle);
+
+            verify(bundle, staging, manifest.getAsJsonObject("files"), hashes);
+            return commit(staging, manifest);
+        } finally {
+            FileUtils.delete(staging);
+        }
+    }
+
+    private void verify(File bundle, File staging, JsonObject files, Map<String, String> hashes) throws IOException {
+        boolean posix = Files.getFileAttributeView(staging.toPath(), PosixFileAttributeView.class) != null;
+        Set<String> unlisted = new HashSet<>(hashes.keySet());
+        for (Map.Entry<String, JsonElement> entry : files.entrySet()) {
+            String name = entry.getKey();
+            JsonObject meta = entry.getValue().getAsJsonObject();
+            String actual = hashes.get(name);
+            if (actual == null)
+                throw new IOException("Invalid bundle " + bundle + ", missing " + name);
+            if (!actual.equals(meta.get("sha256").getAsString()))
+                throw new IOException("Invalid bundle " + bundle + ", checksum mismatch for " + name);
+            unlisted.remove(name);
+
+            File file = resolve(staging, name);
+            if (meta.has("mode") && posix)
+                Files.setPosixFilePermissions(file.toPath(), permissions(meta.get("mode").getAsInt()));
+            // Keep the original times, so the cache still knows how old the catalog is
+            file.setLastModified(meta.get("time").getAsLong());
+        }
+
+        if (!unlisted.isEmpty())
+            throw new IOException("Invalid bundle " + bundle + ", files not in the manifest: " + unlisted);
+    }
+
+    private List<String> commit(File staging, JsonObject manifest) throws IOException {
+        File cache = disco.cache();
+        // Check every name before moving anything, so a bad manifest doesn't leave a half imported cache
+        for (JsonElement element : manifest.getAsJsonArray("packages")) {
+            JsonObject pkg = element.getAsJsonObject();
+            for (String key : new String[] { "archive", "install" }) {
+                if (pkg.has(key)) {
+                    String name = child(pkg.get(key).getAsString());
+                    resolve(cache, name);
+                    resolve(staging, name);
+                }
+            }
+        }
+
+        List<String> ret = new ArrayList<>();
+        for (JsonElement element : manifest.getAsJsonArray("packages")) {
+            JsonObject pkg = element.getAsJsonObject();
+            if (pkg.has("archive")) {
+                String name = child(pkg.get("archive").getAsString());
+                File target = resolve(cache, name);
+                if (!target.exists())
+                    Files.move(resolve(staging, name).toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (pkg.has("install")) {
+                String name = child(pkg.get("install").getAsString());
+                File target = resolve(cache, name);
+                if (target.exists() && !new File(target, "bin").isDirectory())
+                    FileUtils.delete(target); // Left over from a failed extraction
+                if (!target.exists())
+                    Files.move(resolve(staging, name).toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            ret.add(pkg.get("filename").getAsString());
+        }
+
+        File catalog = new File(staging, CATALOG);
+        File existing = new File(cache, CATALOG);
+        if (!existing.exists() || existing.lastModified() < catalog.lastModified())
+            Files.move(catalog.toPath(), existing.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        String index = new String(Files.readAllBytes(new File(staging, INDEX).toPath()), StandardCharsets.UTF_8);
+        Map<String, IndexEntry> entries = GSON.fromJson(new StringReader(index), new TypeToken<Map<String, IndexEntry>>(){}.getType());
+        disco.imported(entries == null ? new HashMap<>() : entries);
+        return ret;
+    }
+
+    private static void write(ZipOutputStream zip, String name, File file, JsonObject files, byte[] buffer) throws IOException {
+        MessageDigest digest = sha256();
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(file.lastModified());
+        zip.putNextEntry(entry);
+        long size = 0;
+        try (InputStream is = new FileInputStream(file)) {
+            for (int len = is.read(buffer); len != -1; len = is.read(buffer)) {
+                digest.update(buffer, 0, len);
+                zip.write(buffer, 0, len);
+                size += len;
+            }
+        }
+        zip.closeEntry();
+
+        JsonObject meta = record(digest, size, file.lastModified());
+        if (Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class) != null)
+            meta.addProperty("mode", mode(Files.getPosixFilePermissions(file.toPath())));
+        files.add(name, meta);
+    }
+
+    private static void writeBytes(ZipOutputStream zip, String name, byte[] data, long time, JsonObject files) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(data);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+        files.add(name, record(digest, data.length, time));
+    }
+
+    private static JsonObject record(MessageDigest digest, long size, long time) {
+        JsonObject ret = new JsonObject();
+        ret.addProperty("size", size);
+        ret.addProperty("sha256", hex(digest.digest()));
+        ret.addProperty("time", time);
+        return ret;
+    }
+
+    // Same check as extracting an archive, entries must not escape the directory
+    private static File resolve(File root, String name) throws IOException {
+        File ret = new File(root, name).getAbsoluteFile();
+        if (!ret.toPath().normalize().startsWith(root.getAbsoluteFile().toPath()))
+            throw new IOException("Invalid bundle entry " + name + ", would not be extracted to target directory");
+        return ret;
+    }
+
+    // Archives and installs sit directly in the cache, so their names from the manifest must be a single plain name
+    private static String child(String name) throws IOException {
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.indexOf('/') != -1 || name.indexOf('\\') != -1)
+            throw new IOException("Invalid bundle package " + name + ", must be a name directly in the cache");
+        return name;
+    }
+
+    private static int mode(Set<PosixFilePermission> perms) {
+        int ret = 0;
+        int mask = 0b100_000_000;
+        for (PosixFilePermission perm : PosixFilePermission.values()) {
+            if (perms.contains(perm))
+                ret |= mask;
+            mask >>= 1;
+        }
+        return ret;
+    }
+
+    private static Set<PosixFilePermission> permissions(int bits) {
+        Set<PosixFilePermission> ret = new HashSet<>();
+        int mask = 0b100_000_000;
+        for (PosixFilePermission perm : PosixFilePermission.values()) {
+            if ((bits & mask) != 0)
+                ret.add(perm);
+            mask >>= 1;
+        }
+        return ret;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every java implementation is required to support SHA-256", e);
+        }
+    }
+
+    private static String hex(byte[] data) {
+        StringBuilder ret = new StringBuilder(data.length * 2);
+        for (byte b : data)
+            ret.append(String.format(Locale.ENGLISH, "%02x", b & 0xFF));
+        return ret.toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Locale;
+
+import net.minecraftforge.java_provisioner.api.ILocatorListener;
+import net.minecraftforge.java_provisioner.api.Progress;
+import net.minecraftforge.util.logging.Log;
+
+/**
+ * Renders download and extraction progress on the console. On a terminal a single line is redrawn in place,
+ * otherwise, such as in CI logs, a line is printed every few seconds instead.
+ */
+public class ConsoleProgress implements ILocatorListener {
+    private static final long LOG_INTERVAL = 5_000_000_000L; // 5 seconds
+
+    private final PrintStream out;
+    private final boolean terminal;
+    private long lastLine;
+    private int width;
+
+    public ConsoleProgress() {
+        this(System.out, System.console() != null);
+    }
+
+    public ConsoleProgress(PrintStream out, boolean terminal) {
+        this.out = out;
+        this.terminal = terminal;
+    }
+
+    @Override
+    public void downloadProgress(String url, File target, Progress progress) {
+        render("Downloading", progress);
+    }
+
+    @Override
+    public void extractProgress(File archive, File target, Progress progress) {
+        render("Extracting ", progress);
+    }
+
+    private synchronized void render(String action, Progress progress) {
+        StringBuilder line = new StringBuilder(action);
+        double fraction = progress.fraction();
+        if (fraction >= 0)
+            line.append(String.format(Locale.ENGLISH, " %5.1f%%", fraction * 100));
+        line.append(' ').append(mb(progress.bytes));
+        if (progress.total > 0)
+            line.append(" / ").append(mb(progress.total));
+        if (progress.entries > 0)
+            line.append(", ").append(progress.entries).append(" files");
+        line.append(", ").append(mb((long)(progress.done ? progress.averageRate() : progress.rate()))).append("/s");
+        if (!progress.done)
+            line.append(" (avg ").append(mb((long)progress.averageRate())).append("/s)");
+
+        if (terminal) {
+            // Pad over whatever was left of a longer previous line
+            int length = line.length();
+            for (int x = length; x < width; x++)
+                line.append(' ');
+            width = progress.done ? 0 : length;
+            out.print('\r');
+            out.print(line);
+            if (progress.done)
+                out.println();
+            out.flush();
+        } else {
+            long now = System.nanoTime();
+            if (progress.done || now - lastLine >= LOG_INTERVAL) {
+                lastLine = progress.done ? 0 : now;
+                Log.info(line.toString());
+            }
+        }
+    }
+
+    private static String mb(long bytes) {
+        return String.format(Locale.ENGLISH, "%.1f MB", bytes / 1024.0 / 1024.0);
+    }
+}
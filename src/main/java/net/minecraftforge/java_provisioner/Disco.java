@@ -4,39 +4,47 @@
  */
 package net.minecraftforge.java_provisioner;
 
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.PosixFileAttributeView;
-import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
-import com.google.gson.internal.bind.TypeAdapters;
-import com.google.gson.stream.JsonWriter;
 
+import net.minecraftforge.java_provisioner.api.ILocatorListener;
+import net.minecraftforge.java_provisioner.util.FileUtils;
 import net.minecraftforge.java_provisioner.util.OS;
 import net.minecraftforge.java_provisioner.util.ProcessUtils;
+import net.minecraftforge.java_provisioner.util.ReleaseFile;
 import net.minecraftforge.util.download.DownloadUtils;
 import net.minecraftforge.util.hash.HashFunction;
 import net.minecraftforge.util.logging.Log;
@@ -44,12 +52,12 @@ import org.kamranzafar.jtar.TarEntry;
 import org.kamranzafar.jtar.TarInputStream;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * A client for the <a href="https://github.com/foojayio/discoapi">foojay disco API</a>
@@ -62,49 +70,150 @@ import com.google.gson.stream.JsonReader;
  * TODO: [DISCO][Threads] Locking files for multiple processes accessing the same cache directory
  */
 public class Disco {
+    public static final String DEFAULT_PROVIDER = "https://api.foojay.io/disco/v3.0";
     private static final int CACHE_TIMEOUT = 1000 * 60 * 60 * 12; // 12 hours
-
-    // A GSO parser that prints good looking output, and treats empty strings as nulls
-    private static final Gson GSON = new GsonBuilder()
+    private static final String INFO_INDEX = "info.json";
+    private static final int PREFETCH_THREADS = 8;
+    private static final int REDIRECT_TIMEOUT = 1000 * 10; // 10 seconds
+    private static final int DOWNLOAD_TIMEOUT = 1000 * 30; // 30 seconds without any data
+    private static final int MAX_REDIRECTS = 5;
+    private static final int BUFFER_SIZE = 8192;
+    // Java home -> the background extraction finishing it, see setLazy. Shared, as locators make a new instance each time.
+    private static final Map<File, CompletableFuture<File>> COMPLETING = new ConcurrentHashMap<>();
+    // Metadata is updated from background extractions too, so read-modify-writes need to be one at a time
+    private static final Object METADATA_LOCK = new Object();
+
+    // A GSON parser that prints good looking output. The model classes use hand written adapters,
+    // which treat empty strings as nulls, so reading the catalog never goes through reflection.
+    private static final Gson GSON = DiscoAdapters.register(new GsonBuilder())
         .setLenient()
         .setPrettyPrinting()
-        .registerTypeAdapter(String.class, new TypeAdapter<String>() {
-            @Override
-            public void write(final JsonWriter out, final String value) throws IOException {
-                if (value == null || value.isEmpty())
-                    out.nullValue();
-                else
-                    TypeAdapters.STRING.write(out, value);
-            }
-
-            @Override
-            public String read(final JsonReader in) throws IOException {
-                String value = TypeAdapters.STRING.read(in);
-                return value != null && value.isEmpty() ? null : value; // Read empty strings as null
-            }
-        })
         .create();
 
     private final File cache;
-    private final String provider;
+    private final DiscoProviders providers;
     private final boolean offline;
+    private final Host host;
+    private Metrics metrics;
+    private ILocatorListener listener;
+    private ExtractionProfile profile = ExtractionProfile.FULL;
+    private boolean lazy;
+    private boolean cds;
+    // The catalog is a few megabytes of json, keep it around so bulk and repeated lookups only parse it once
+    private volatile List<Package> packages;
+    private volatile long packagesTime;
+    // Package id -> everything we've learned about it, saved as a single info.json in the cache
+    private final Object indexLock = new Object();
+    private Map<String, IndexEntry> index;
 
     public Disco(File cache) {
-        this(cache, "https://api.foojay.io/disco/v3.0");
+        this(cache, DEFAULT_PROVIDER);
     }
 
     public Disco(File cache, boolean offline) {
-        this(cache, "https://api.foojay.io/disco/v3.0", offline);
+        this(cache, DEFAULT_PROVIDER, offline);
     }
 
+    /**
+     * @param provider The disco API endpoint to use, or a comma separated list of them in order of preference
+     */
     public Disco(File cache, String provider) {
         this(cache, provider, false);
     }
 
     public Disco(File cache, String provider, boolean offline) {
+        this(cache, DiscoProviders.parse(provider), offline);
+    }
+
+    public Disco(File cache, List<String> providers, boolean offline) {
+        this(cache, new DiscoProviders(providers, cache), offline);
+    }
+
+    public Disco(File cache, DiscoProviders providers, boolean offline) {
         this.cache = cache;
-        this.provider = provider;
+        this.providers = providers;
         this.offline = offline;
+        this.host = Host.current(cache);
+    }
+
+    /**
+     * The machine packages are being chosen for, remembered in this cache.
+     */
+    public Host host() {
+        return this.host;
+    }
+
+    /**
+     * The API endpoints this uses, and how healthy they have been.
+     */
+    public DiscoProviders providers() {
+        return this.providers;
+    }
+
+    File cache() { // Package private for CacheBundle
+        return this.cache;
+    }
+
+    // Anything older than this needs to be fetched again. Offline there is nothing to fetch, so anything is better than nothing.
+    private long oldest() {
+        return offline ? Long.MIN_VALUE : System.currentTimeMillis() - CACHE_TIMEOUT;
+    }
+
+    /**
+     * Records timings, transfer sizes and cache hits into the specified metrics, or stops recording if null.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Reports download and extraction events to the specified listener, or stops reporting if null.
+     * Free form messages still go through {@link #debug(String)} and {@link #error(String)}.
+     */
+    public void setListener(ILocatorListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets what {@link #extract(Package)} extracts, defaults to {@link ExtractionProfile#FULL}.
+     */
+    public void setProfile(ExtractionProfile profile) {
+        this.profile = profile == null ? ExtractionProfile.FULL : profile;
+    }
+
+    public ExtractionProfile profile() {
+        return this.profile;
+    }
+
+    /**
+     * When enabled, {@link #extract(Package)} returns once everything needed to run and compile is written, and
+     * the rest of the profile, such as sources and jmods, is extracted on a background thread. Until that is done
+     * the install is marked as partial, so other instances and {@link DiscoLocator} don't treat it as complete.
+     *
+     * @see #completion(File)
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * When enabled, installs without a class data sharing archive get one generated with {@code -Xshare:dump} once
+     * they are extracted, so every JVM started from them, including the probe, starts faster. Java 8 server VMs only
+     * use one with {@code -Xshare:auto}, which nothing passes, so they are skipped. Installs that are already extracted get
+     * one the next time they are asked for. This is only attempted once per install, the result is recorded in
+     * its metadata.
+     */
+    public void setCds(boolean cds) {
+        this.cds = cds;
+    }
+
+    /**
+     * @return The background extraction of the specified java home, which completes with the java home, or null if
+     *         it failed. Already complete if nothing is being extracted for it in this process.
+     */
+    public CompletableFuture<File> completion(File home) {
+        CompletableFuture<File> ret = COMPLETING.get(home.getAbsoluteFile());
+        return ret != null ? ret : CompletableFuture.completedFuture(home);
     }
 
     protected void debug(String message) {
@@ -116,39 +225,76 @@ public class Disco {
     }
 
     public List<Package> getPackages() {
+        long start = System.nanoTime();
+        try {
+            return getPackagesInternal();
+        } finally {
+            if (metrics != null)
+                metrics.time(Metrics.Phase.CATALOG, start);
+        }
+    }
+
+    private List<Package> getPackagesInternal() {
+        List<Package> ret = this.packages;
+        if (ret != null && this.packagesTime >= oldest()) {
+            hit(Metrics.Phase.CATALOG);
+            return ret;
+        }
+
+        // Only one thread needs to read or download the catalog, everyone else can wait for it
+        synchronized (this) {
+            ret = this.packages;
+            if (ret != null && this.packagesTime >= oldest()) {
+                hit(Metrics.Phase.CATALOG);
+                return ret;
+            }
+
+            ret = loadPackages();
+            if (ret != null) {
+                ret = Collections.unmodifiableList(ret);
+                this.packagesTime = System.currentTimeMillis();
+                this.packages = ret;
+            }
+            return ret;
+        }
+    }
+
+    private List<Package> loadPackages() {
         File tmp = new File(cache, "packages.json");
         List<Package> ret = readJson(tmp, new TypeToken<List<Package>>(){});
-        if (ret != null)
+        if (ret != null) {
+            hit(Metrics.Phase.CATALOG);
             return ret;
+        }
 
+        miss(Metrics.Phase.CATALOG);
         if (offline)
             return null;
 
-        String url = provider + "/packages/?"
+        String path = "/packages/?"
             + "&package_type=jdk" // JDK has everything, could pull just the JRE but who cares.
             + "&directly_downloadable=true" // This doesn't actually seem to do anything but it's in the spec...
             + "&archive_type=zip,tar,tar.gz,tgz" // Formats that we support
         ;
 
         debug("Downloading package list");
-        String data = DownloadUtils.tryDownloadString(true, url);
-        if (data == null)
-            return null;
-
-        Response<Package> resp = new Response<>(data, Package.class);
-
-        if (resp.entries().isEmpty()) {
-            error("Failed to download any packages from " + url);
+        Response<Package> resp = fetch(path, Package.class);
+        if (resp == null) {
+            error("Failed to download any packages from " + providers);
             return null;
         }
 
-        writeJson(tmp, resp.entries(), List.class);
+        try {
+            FileUtils.writeAtomically(tmp, writer -> GSON.toJson(resp.entries(), List.class, GSON.newJsonWriter(writer)));
+        } catch (IOException | JsonIOException e) {
+            debug("Failed to write " + tmp + ": " + e.getMessage());
+        }
 
         return resp.entries();
     }
 
     public List<Package> getPackages(int version) {
-        return getPackages(version, OS.CURRENT, Distro.TEMURIN, Arch.CURRENT);
+        return getPackages(version, host.os(), Distro.TEMURIN, host.arch());
     }
 
     public List<Package> getPackages(int version, OS os, Distro distro, Arch arch) {
@@ -171,8 +317,8 @@ public class Disco {
                 if (arch != parch && (arch.parent == null || arch.parent != parch))
                     continue;
             }
-            if (LibC.CURRENT != LibC.MUSL && pkg.libC() == LibC.MUSL)
-                continue; // TODO: [DISCO][Hack] Find a good way to detect actual libc type, this is not great
+            if (pkg.libC() == LibC.MUSL && host.libc() != LibC.MUSL)
+                continue;
 
             if (max_jdk_version < pkg.jdk_version)
                 max_jdk_version = pkg.jdk_version;
@@ -194,39 +340,167 @@ public class Disco {
     }
 
     public PackageInfo getInfo(Package pkg) {
-        File tmp = new File(cache, pkg.filename + ".json");
-        DownloadInfo ret = readJson(tmp, TypeToken.get(DownloadInfo.class));
-        if (ret != null && ret.info != null)
-            return ret.info;
+        long start = System.nanoTime();
+        try {
+            return getInfoInternal(pkg);
+        } finally {
+            if (metrics != null)
+                metrics.time(Metrics.Phase.INFO, start);
+        }
+    }
 
+    private PackageInfo getInfoInternal(Package pkg) {
+        IndexEntry entry = indexed(pkg);
+        if (entry != null && entry.info != null) {
+            hit(Metrics.Phase.INFO);
+            return entry.info;
+        }
+
+        // Older versions wrote one small file per package, use them if they are still around
+        File legacy = new File(cache, pkg.filename + ".json");
+        DownloadInfo old = readJson(legacy, TypeToken.get(DownloadInfo.class));
+        if (old != null && old.info != null) {
+            hit(Metrics.Phase.INFO);
+            PackageInfo info = old.info;
+            index(pkg, e -> e.info = info);
+            return info;
+        }
+
+        miss(Metrics.Phase.INFO);
         if (offline)
             return null;
 
         //debug("Downloading package info " + pkg.id);
-        String url = provider + "/ids/" + pkg.id;
-        String data = DownloadUtils.tryDownloadString(true, url);
-        if (data == null)
+        Response<PackageInfo> resp = fetch("/ids/" + pkg.id, PackageInfo.class);
+        if (resp == null) {
+            error("Failed to download package info for "+ pkg.id);
             return null;
+        } else if (resp.entries().size() != 1) { // This never happens, but output a warning if it does.
+            debug("Warning: Multiple package infos returned for " + pkg.id);
+        }
 
-        Response<PackageInfo> resp = new Response<>(data, PackageInfo.class);
+        PackageInfo info = resp.entries().get(0);
+        index(pkg, e -> e.info = info);
+        return info;
+    }
 
-        if (resp.entries().isEmpty()) {
-            error("Failed to download package info for "+ pkg.id);
+    // Asks each provider in turn, best first, until one of them gives a non empty response
+    private <T> Response<T> fetch(String path, Class<T> clazz) {
+        List<DiscoProviders.Endpoint> endpoints = providers.ranked();
+        for (int x = 0; x < endpoints.size(); x++) {
+            DiscoProviders.Endpoint endpoint = endpoints.get(x);
+            long start = System.nanoTime();
+            String data = DownloadUtils.tryDownloadString(true, endpoint.url() + path);
+            Response<T> resp = data == null ? null : new Response<>(data, clazz);
+            // A mirror that answers with nothing is as useless as one that doesn't answer
+            boolean success = resp != null && !resp.entries().isEmpty();
+            providers.record(endpoint, System.nanoTime() - start, success);
+            if (success)
+                return resp;
+
+            if (x + 1 < endpoints.size())
+                debug("Failed to get " + path + " from " + endpoint.url() + ", trying " + endpoints.get(x + 1).url());
+        }
+        return null;
+    }
+
+    /**
+     * Fetches the package info, checksum and download redirect target for the first {@code count} packages
+     * all at once, and saves them in the cache. A later {@link #download(Package)} of any of them then only
+     * needs to fetch the archive itself, instead of making each of these requests one after another.
+     */
+    public void prefetch(List<Package> pkgs, int count) {
+        if (offline || pkgs == null || count <= 0 || pkgs.isEmpty())
+            return;
+
+        List<Package> targets = pkgs.subList(0, Math.min(count, pkgs.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(targets.size() * 2, PREFETCH_THREADS), r -> {
+            Thread ret = new Thread(r, "Disco-Prefetch");
+            ret.setDaemon(true);
+            return ret;
+        });
+
+        try {
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (Package pkg : targets) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    PackageInfo info = getInfo(pkg);
+                    if (info != null && info.checksum == null)
+                        getChecksum(pkg, info);
+                }, pool));
+
+                // The redirect is only needed if the info has no direct link, but we don't know that yet, so ask at the same time
+                IndexEntry entry = indexed(pkg);
+                if ((entry == null || entry.location == null) && pkg.links != null && pkg.links.pkg_download_redirect != null)
+                    futures.add(CompletableFuture.runAsync(() -> resolveRedirect(pkg), pool));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            error("Failed to prefetch package info: " + e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Follows a single hop of the disco redirect link. The target is normally a stable release url,
+    // further hops tend to be signed links that expire, so those are not worth caching.
+    private String resolveRedirect(Package pkg) {
+        IndexEntry entry = indexed(pkg);
+        if (entry != null && entry.location != null)
+            return entry.location;
+
+        String url = pkg.links.pkg_download_redirect;
+        HttpURLConnection con = null;
+        try {
+            con = (HttpURLConnection)new URL(url).openConnection();
+            con.setInstanceFollowRedirects(false);
+            con.setConnectTimeout(REDIRECT_TIMEOUT);
+            con.setReadTimeout(REDIRECT_TIMEOUT);
+            int code = con.getResponseCode();
+            String location = con.getHeaderField("Location");
+            if (code < 300 || code >= 400 || location == null)
+                return null;
+
+            String target = new URL(new URL(url), location).toString();
+            index(pkg, e -> e.location = target);
+            return target;
+        } catch (IOException e) {
+            debug("Failed to resolve " + url + ": " + e.getMessage());
             return null;
-        } else if (resp.entries().size() != 1) { // This never happens, but output a warning if it does.
-            debug("Warning: Multiple package infos returned from " + url);
+        } finally {
+            if (con != null)
+                con.disconnect();
         }
+    }
+
+    // Returns the checksum published at the info's checksum_uri, which only needs to be downloaded once
+    private String getChecksum(Package pkg, PackageInfo info) {
+        IndexEntry entry = indexed(pkg);
+        if (entry != null && entry.checksum != null)
+            return entry.checksum;
 
-        ret = new DownloadInfo(pkg, resp.entries().get(0));
-        writeJson(tmp, ret, DownloadInfo.class);
-        return ret.info;
+        if (info.checksum_uri == null || offline)
+            return null;
+
+        long start = System.nanoTime();
+        String raw = DownloadUtils.tryDownloadString(true, info.checksum_uri);
+        if (metrics != null)
+            metrics.time(Metrics.Phase.CHECKSUM, start);
+        if (raw == null)
+            return null;
+
+        String checksum = raw.trim().split("\\s+")[0];
+        index(pkg, e -> e.checksum = checksum);
+        return checksum;
     }
 
     public File download(Package pkg) {
         PackageInfo info = getInfo(pkg);
 
         Map<HashFunction, String> checksums = new EnumMap<>(HashFunction.class);
-        String download = pkg.links.pkg_download_redirect;
+        IndexEntry entry = indexed(pkg);
+        String download = entry != null && entry.location != null ? entry.location : pkg.links.pkg_download_redirect;
+        long start;
 
         //debug("Downloading " + pkg.filename);
         if (info == null) {
@@ -238,10 +512,9 @@ public class Disco {
                     checksums.put(func, info.checksum);
                 else
                     debug("Unknown Checksum " + info.checksum_type + ": " + info.checksum);
-            } else if (info.checksum_uri != null && !offline) {
-                String raw = DownloadUtils.tryDownloadString(true, info.checksum_uri);
-                if (raw != null) {
-                    String checksum = raw.split(" ")[0];
+            } else if (info.checksum_uri != null) {
+                String checksum = getChecksum(pkg, info);
+                if (checksum != null) {
                     HashFunction func = HashFunction.findByHash(checksum);
                     if (func != null)
                         checksums.put(func, checksum);
@@ -255,7 +528,10 @@ public class Disco {
         }
 
         File archive = new File(cache, pkg.filename);
-        if (!archive.exists()) {
+        if (archive.exists()) {
+            hit(Metrics.Phase.DOWNLOAD);
+        } else {
+            miss(Metrics.Phase.DOWNLOAD);
             if (download == null) {
                 if (offline)
                     error("Offline mode, can't download " + pkg.filename + " (" + pkg.id + ")");
@@ -264,7 +540,26 @@ public class Disco {
                 return null;
             }
             debug("Downloading " + download);
-            if (!DownloadUtils.tryDownloadFile(true, archive, download)) {
+            if (listener != null)
+                listener.downloadStarted(download, archive);
+            start = System.nanoTime();
+            ProgressTracker progress = null;
+            if (listener != null) {
+                ILocatorListener listener = this.listener;
+                String url = download;
+                progress = new ProgressTracker(pkg.size > 0 ? pkg.size : -1, p -> listener.downloadProgress(url, archive, p));
+            }
+            boolean success = downloadFile(archive, download, progress);
+            if (progress != null)
+                progress.done();
+            if (listener != null)
+                listener.downloadFinished(download, archive, success);
+            if (metrics != null) {
+                metrics.time(Metrics.Phase.DOWNLOAD, start);
+                if (success)
+                    metrics.bytes(Metrics.Phase.DOWNLOAD, archive.length());
+            }
+            if (!success) {
                 error("Failed to download " + pkg.filename + " from " + download);
                 return null;
             }
@@ -272,6 +567,7 @@ public class Disco {
 
         if (!checksums.isEmpty()) {
             debug("Verifying checksums");
+            start = System.nanoTime();
             boolean success = true;
             for (HashFunction func : checksums.keySet()) {
                 try {
@@ -290,6 +586,8 @@ public class Disco {
                     return null;
                 }
             }
+            if (metrics != null)
+                metrics.time(Metrics.Phase.CHECKSUM, start);
             if (!success)
                 return null;
         } else {
@@ -299,7 +597,75 @@ public class Disco {
         return archive;
     }
 
-    private File getExtractedDir(Package pkg) {
+    // Downloads to a temp file that is only moved into place once complete, so an interrupted download
+    // never looks like a cached archive. Checks for interruption between reads, so it can be cancelled.
+    // Each download has its own temp file, so another process downloading the same archive can't interleave with it.
+    private boolean downloadFile(File target, String url, ProgressTracker progress) {
+        File tmp = null;
+        HttpURLConnection con = null;
+        try {
+            for (int x = 0; ; x++) {
+                con = (HttpURLConnection)new URL(url).openConnection();
+                // Followed by hand, as HttpURLConnection won't follow a redirect from http to https
+                con.setInstanceFollowRedirects(false);
+                con.setConnectTimeout(REDIRECT_TIMEOUT);
+                con.setReadTimeout(DOWNLOAD_TIMEOUT);
+                int code = con.getResponseCode();
+                if (code < 300 || code >= 400)
+                    break;
+
+                String location = con.getHeaderField("Location");
+                con.disconnect();
+                if (location == null || x >= MAX_REDIRECTS) {
+                    debug("Too many redirects, or redirect without location: " + url);
+                    return false;
+                }
+                url = new URL(new URL(url), location).toString();
+            }
+
+            if (con.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                debug("Failed to download " + url + ": " + con.getResponseCode() + " " + con.getResponseMessage());
+                return false;
+            }
+
+            long length = con.getContentLengthLong();
+            if (progress != null && length > 0)
+                progress.total(length);
+
+            File parent = target.getAbsoluteFile().getParentFile();
+            parent.mkdirs();
+            tmp = Files.createTempFile(parent.toPath(), target.getName(), ".part").toFile();
+            try (InputStream in = con.getInputStream();
+                 OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                    if (Thread.currentThread().isInterrupted())
+                        throw new InterruptedIOException("Download cancelled");
+                    out.write(buffer, 0, len);
+                    if (progress != null)
+                        progress.add(len);
+                }
+            }
+            try {
+                // Not ATOMIC_MOVE, that replaces an existing file on most systems. Same directory, so still a rename.
+                Files.move(tmp.toPath(), target.toPath());
+            } catch (FileAlreadyExistsException e) {
+                // Someone else finished first, keep theirs rather than replace a file they may be reading
+                tmp.delete();
+            }
+            return true;
+        } catch (IOException e) {
+            debug("Failed to download " + url + ": " + e.getMessage());
+            if (tmp != null)
+                tmp.delete();
+            return false;
+        } finally {
+            if (con != null)
+                con.disconnect();
+        }
+    }
+
+    File getExtractedDir(Package pkg) { // Package private for CacheBundle
         String filename = pkg.filename;
         Archive format = pkg.archive();
         if (format == null)
@@ -317,6 +683,14 @@ public class Disco {
     }
 
     public File extract(Package pkg) {
+        return extract(pkg, this.profile);
+    }
+
+    /**
+     * Extracts the package, downloading it if needed. If it was already extracted with a profile that doesn't
+     * cover the one requested, the missing files are added to the existing install.
+     */
+    public File extract(Package pkg, ExtractionProfile profile) {
         File archive = new File(cache, pkg.filename);
         if (!archive.exists())
             archive = download(pkg);
@@ -325,29 +699,246 @@ public class Disco {
             return null;
 
         File extracted = getExtractedDir(pkg);
-        return extract(archive, extracted, pkg.os(), pkg.archive());
+        return extract(pkg, archive, extracted, pkg.os(), pkg.archive(), profile);
     }
 
-    private File extract(File archive, File target, OS os, Archive format) {
+    private File extract(Package pkg, File archive, File target, OS os, Archive format, ExtractionProfile profile) {
         String exeName = "bin/java" + OS.CURRENT.exe();
         File exe = new File(target, exeName);
-        if (exe.exists())
-            return target;
 
+        // Already being finished in the background, so wait for that rather than extract the same files twice
+        CompletableFuture<File> pending = COMPLETING.get(target.getAbsoluteFile());
+        if (pending != null && !InstallMetadata.CRITICAL.covers(profile)) {
+            debug("Waiting for " + target + " to finish extracting");
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                // Failed, so whatever it left gets upgraded below
+            }
+        }
+
+        ExtractionProfile existing = null;
+        if (exe.exists()) {
+            existing = InstallMetadata.profile(target);
+            if (existing == null)
+                debug("Found unfinished extraction " + target + ", extracting again");
+            else if (existing.covers(profile)) {
+                hit(Metrics.Phase.EXTRACT);
+                // Don't run the JVM while files are still being written
+                if (cds && !COMPLETING.containsKey(target.getAbsoluteFile()))
+                    generateCds(pkg, target);
+                return target;
+            } else
+                debug("Upgrading " + target + " from " + existing.key() + " to " + profile.key());
+        }
+
+        // Only worth it for fresh installs, upgrades already have something usable
+        boolean lazy = this.lazy && existing == null && !InstallMetadata.CRITICAL.covers(profile);
+
+        miss(Metrics.Phase.EXTRACT);
+        if (listener != null)
+            listener.extractStarted(archive, target);
+        long start = System.nanoTime();
+        ProgressTracker progress = null;
+        if (listener != null) {
+            ILocatorListener listener = this.listener;
+            progress = new ProgressTracker(-1, p -> listener.extractProgress(archive, target, p));
+        }
+        File ret = null;
+        try {
+            // Mark it first, so anyone looking while we extract doesn't think the files that exist are all there is
+            if (existing == null)
+                writeMetadata(pkg, target, profile, InstallMetadata.State.EXTRACTING);
+            Predicate<String> filter = lazy ? filter(InstallMetadata.CRITICAL, null) : filter(profile, existing);
+            ret = extractInternal(exeName, exe, archive, target, os, format, filter, existing != null, progress);
+            if (ret != null) {
+                writeMetadata(pkg, ret, profile, lazy ? InstallMetadata.State.PARTIAL : InstallMetadata.State.COMPLETE);
+                if (lazy)
+                    completeLater(pkg, exeName, exe, archive, ret, os, format, profile, cds);
+                else if (cds)
+                    generateCds(pkg, ret);
+            }
+            return ret;
+        } finally {
+            if (metrics != null)
+                metrics.time(Metrics.Phase.EXTRACT, start);
+            if (progress != null)
+                progress.done();
+            if (listener != null)
+                listener.extractFinished(archive, target, ret != null);
+        }
+    }
+
+    // Null if everything should be extracted
+    private static Predicate<String> filter(ExtractionProfile profile, ExtractionProfile existing) {
+        if (existing != null)
+            return name -> profile.includes(name) && !existing.includes(name);
+        if (profile == ExtractionProfile.FULL)
+            return null;
+        return profile::includes;
+    }
+
+    // Extracts what the first pass skipped, on its own thread
+    private void completeLater(Package pkg, String exeName, File exe, File archive, File target, OS os, Archive format, ExtractionProfile profile, boolean cds) {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        COMPLETING.put(target, future);
+        Thread thread = new Thread(() -> {
+            File ret = null;
+            try {
+                ret = extractInternal(exeName, exe, archive, target, os, format, filter(profile, InstallMetadata.CRITICAL), true, null);
+                if (ret != null) {
+                    writeMetadata(pkg, ret, profile, InstallMetadata.State.COMPLETE);
+                    debug("Finished extracting " + ret);
+                    if (cds)
+                        generateCds(pkg, ret);
+                }
+            } finally {
+                COMPLETING.remove(target, future);
+                future.complete(ret);
+            }
+        }, "Disco-Complete");
+        // Not a daemon, so a normal exit still finishes the install instead of leaving it partial
+        thread.start();
+    }
+
+    private void writeMetadata(Package pkg, File target, ExtractionProfile profile, InstallMetadata.State state) {
+        updateMetadata(target, data -> {
+            data.id = pkg.id;
+            data.filename = pkg.filename;
+            data.profile = profile;
+            data.state = state;
+            // Starting over, so anything we knew about the old files is gone
+            if (state == InstallMetadata.State.EXTRACTING)
+                data.cds = null;
+        });
+    }
+
+    private void updateMetadata(File target, Consumer<InstallMetadata> update) {
+        synchronized (METADATA_LOCK) {
+            InstallMetadata data = InstallMetadata.read(target);
+            if (data == null)
+                data = new InstallMetadata();
+            update.accept(data);
+            data.time = System.currentTimeMillis();
+            try {
+                data.write(target);
+            } catch (IOException e) {
+                // Only costs a re-extract of missing files later, the install itself is fine
+                error("    Failed to write install metadata: " + e.getMessage());
+            }
+        }
+    }
+
+    private void generateCds(Package pkg, File target) {
+        InstallMetadata data = InstallMetadata.read(target);
+        if (data != null && data.cds != null)
+            return;
+
+        InstallMetadata.Cds result = dumpCds(target);
+        if (result == null)
+            return;
+
+        updateMetadata(target, d -> {
+            // No metadata, so extracted before we had any, which means everything was
+            if (d.filename == null && d.profile == null) {
+                d.id = pkg.id;
+                d.filename = pkg.filename;
+                d.profile = ExtractionProfile.FULL;
+            }
+            d.cds = result;
+        });
+    }
+
+    // Null if we were interrupted, so it can be tried again
+    private InstallMetadata.Cds dumpCds(File home) {
+        if (findCdsArchive(home) != null)
+            return InstallMetadata.Cds.SHIPPED;
+
+        ReleaseFile release = ReleaseFile.read(home);
+        if (release != null && release.isOpenJ9())
+            return InstallMetadata.Cds.UNSUPPORTED;
+
+        // Java 8 wouldn't use the archive without -Xshare:auto, so it would just be 15MB of disk. Only 8 and older have rt.jar.
+        int major = release == null ? -1 : release.majorVersion();
+        if ((major != -1 && major < 9) || (major == -1 && (new File(home, "jre/lib/rt.jar").exists() || new File(home, "lib/rt.jar").exists())))
+            return InstallMetadata.Cds.UNSUPPORTED;
+
+        debug("Generating CDS archive for " + home);
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>();
+        int exitCode = ProcessUtils.runCommand(lines, new File(home, "bin/java" + OS.CURRENT.exe()).getAbsolutePath(), "-Xshare:dump");
+        if (exitCode == -3)
+            return null;
+
+        File archive = findCdsArchive(home);
+        if (exitCode != 0 || archive == null) {
+            debug("    Failed to generate CDS archive, exit code " + exitCode);
+            for (String line : lines)
+                debug("        " + line);
+            return InstallMetadata.Cds.FAILED;
+        }
+
+        debug("    Generated " + archive + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return InstallMetadata.Cds.GENERATED;
+    }
+
+    // The default archive lives next to the JVM library, which depends on the version, OS and VM
+    private static File findCdsArchive(File home) {
+        for (String base : new String[] { "lib", "bin", "jre/lib", "jre/bin" }) {
+            File dir = new File(home, base);
+            if (!dir.isDirectory())
+                continue;
+
+            for (String vm : new String[] { "server", "client" }) {
+                File archive = new File(dir, vm + "/classes.jsa");
+                if (archive.exists())
+                    return archive;
+            }
+
+            // Java 8 on linux and mac has an extra architecture directory, such as jre/lib/amd64/server
+            File[] children = base.endsWith("lib") ? dir.listFiles() : null;
+            if (children != null) {
+                for (File arch : children) {
+                    File archive = new File(arch, "server/classes.jsa");
+                    if (archive.exists())
+                        return archive;
+                }
+            }
+        }
+        return null;
+    }
+
+    private File extractInternal(String exeName, File exe, File archive, File target, OS os, Archive format, Predicate<String> filter, boolean upgrade, ProgressTracker progress) {
         debug("Extracting " + archive + " to: " + target);
         target = target.getAbsoluteFile();
         if (!target.exists())
             target.mkdirs();
 
+        ExtractionWriter writer = new ExtractionWriter(target, progress);
         if (format == Disco.Archive.TAR || format == Disco.Archive.TGZ || format == Disco.Archive.TAR_GZ) {
-            extractTar(exeName, archive, target, os, format == Disco.Archive.TGZ || format == Disco.Archive.TAR_GZ);
+            extractTar(exeName, archive, target, os, format == Disco.Archive.TGZ || format == Disco.Archive.TAR_GZ, filter, writer, progress);
         } else if (format == Disco.Archive.ZIP) {
-            extractZip(exeName, archive, target);
+            extractZip(exeName, archive, target, filter, writer, progress);
         } else {
             error("    Unknown archive format.. can't continue");
             return null;
         }
 
+        if (Thread.currentThread().isInterrupted()) {
+            if (upgrade) {
+                // Still a working install with the old profile, the extra files don't hurt
+                error("    Extraction cancelled, leaving " + target + " as it was");
+                return null;
+            }
+            // The executable may already be there, which would make this look complete to the next run
+            error("    Extraction cancelled, deleting " + target);
+            delete(target);
+            return null;
+        }
+
         if (!exe.exists()) {
             error("    Extracting failed to produce expected java executable: " + exe.getAbsolutePath());
             // TODO: [DISCO][Cleanup] Delete failed extraction
@@ -357,9 +948,7 @@ public class Disco {
         return target;
     }
 
-    private void extractZip(String exeName, File archive, File target) {
-        boolean posix = Files.getFileAttributeView(target.toPath(), PosixFileAttributeView.class) != null;
-
+    private void extractZip(String exeName, File archive, File target, Predicate<String> filter, ExtractionWriter writer, ProgressTracker progress) {
         try (ZipFile zip = new ZipFile(archive)) {
             List<? extends ZipEntry> entries = Collections.list(zip.entries());
 
@@ -376,32 +965,50 @@ public class Disco {
             if (prefix != null)
                 debug("   Prefix: " + prefix);
 
+            if (progress != null) {
+                // Unlike tars, zips know how much there is to extract up front
+                long total = 0;
+                for (ZipEntry entry : entries) {
+                    String name = entry.getName().replace('\\', '/');
+                    if (prefix != null) {
+                        if (!name.startsWith(prefix))
+                            continue;
+                        name = name.substring(prefix.length());
+                    }
+                    if (filter == null || filter.test(name))
+                        total += Math.max(0, entry.getSize());
+                }
+                progress.total(total);
+            }
+
             for (ZipEntry entry : entries) {
                 int bits = getZipMode(entry.getExtra());
                 InputStream stream = zip.getInputStream(entry);
                 String name = entry.getName().replace('\\', '/'); // Normalize as some zips don't use /
                 boolean isDir = entry.isDirectory() || name.endsWith("/");
 
-                if (!extractFile(archive, posix, target, prefix, name, stream, bits, isDir))
+                if (!extractFile(archive, filter, writer, target, prefix, name, stream, entry.getSize(), bits, isDir))
                     return;
             }
+        } catch (InterruptedIOException e) {
+            // Cancelled, cleaned up by extractInternal
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private static int getZipMode(byte[] data) throws IOException {
+    private static int getZipMode(byte[] data) {
         int bits = 0b111_101_101; // Default, let everyone read/execute but only the owner write
         if (data == null)
             return bits;
 
-        // Find perms from extra info if possible
+        // Find perms from extra info if possible, everything in a zip is little endian
         // https://libzip.org/specifications/extrafld.txt
-        DataInputStream bin = new DataInputStream(new ByteArrayInputStream(data));
-        while (bin.available() > 0) {
-            int id = bin.readUnsignedShort();
-            int len = bin.readUnsignedShort();
-            if (id == 0x756e) {
+        for (int pos = 0; pos + 4 <= data.length; ) {
+            int id = (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8;
+            int len = (data[pos + 2] & 0xFF) | (data[pos + 3] & 0xFF) << 8;
+            pos += 4;
+            if (id == 0x756e && len >= 6 && pos + 6 <= data.length) {
                 /*
                  *         -ASi Unix Extra Field:
                  *          ====================
@@ -437,18 +1044,16 @@ public class Disco {
                  *          [Note that TSize may incorrectly refer to the data size not counting
                  *           the CRC; i.e., it may be four bytes too small.]
                  */
-                bin.skip(4); // CRC-32
-                bits = bin.readUnsignedShort() & 0b111_111_111; // I only care about the file perms
-                bin.skip(len - 6);
-            } else {
-                bin.skip(len);
+                // Skip the CRC-32, and I only care about the file perms
+                bits = ((data[pos + 4] & 0xFF) | (data[pos + 5] & 0xFF) << 8) & 0b111_111_111;
             }
+            pos += len;
         }
 
         return bits;
     }
 
-    private boolean extractFile(File archive, boolean posix, File target, String prefix, String name, InputStream stream, int bits, boolean isDir) throws IOException {
+    private boolean extractFile(File archive, Predicate<String> filter, ExtractionWriter writer, File target, String prefix, String name, InputStream stream, long size, int bits, boolean isDir) throws IOException {
         if (isDir)
             return true;
 
@@ -458,6 +1063,9 @@ public class Disco {
             name = name.substring(prefix.length());
         }
 
+        if (filter != null && !filter.test(name))
+            return true;
+
         File out = new File(target, name).getAbsoluteFile();
         //log("    Extracting: " + name);
         if (!out.getAbsolutePath().startsWith(target.getAbsolutePath())) {
@@ -467,26 +1075,23 @@ public class Disco {
             return false;
         }
 
-        File parent = out.getParentFile();
-        if (!parent.exists())
-            parent.mkdirs();
-
-        Files.copy(stream, out.toPath(), StandardCopyOption.REPLACE_EXISTING);
-
-        if (posix) {
-            Set<PosixFilePermission> perms = new HashSet<>();
-            int mask = 0b100_000_000;
-            for (PosixFilePermission perm : PosixFilePermission.values()) {
-                if ((bits & mask) != 0)
-                    perms.add(perm);
-                mask >>= 1;
-            }
-            Files.setPosixFilePermissions(out.toPath(), perms);
+        long written = writer.write(out, stream, size, bits);
+        if (metrics != null) {
+            metrics.bytes(Metrics.Phase.EXTRACT, written);
+            metrics.entries(Metrics.Phase.EXTRACT, 1);
         }
 
         return true;
     }
 
+    private void delete(File file) {
+        try {
+            FileUtils.delete(file);
+        } catch (IOException e) {
+            error("    Failed to delete " + file + ": " + e.getMessage());
+        }
+    }
+
     private static InputStream getFileStream(File file, boolean gziped) throws IOException {
         InputStream stream = new FileInputStream(file);
         if (gziped)
@@ -494,7 +1099,7 @@ public class Disco {
         return stream;
     }
 
-    private void extractTar(String exeName, File archive, File target, OS os, boolean gziped) {
+    private void extractTar(String exeName, File archive, File target, OS os, boolean gziped, Predicate<String> filter, ExtractionWriter writer, ProgressTracker progress) {
         // First pass, find the executable file, to see if we need to remove a prefix
         String prefix = null;
         try (TarInputStream tar = new TarInputStream(getFileStream(archive, gziped))) {
@@ -514,15 +1119,16 @@ public class Disco {
         if (prefix != null)
             debug("    Prefix: " + prefix);
 
-        boolean posix = Files.getFileAttributeView(target.toPath(), PosixFileAttributeView.class) != null;
         try (TarInputStream tar = new TarInputStream(getFileStream(archive, gziped))) {
             for (TarEntry entry = tar.getNextEntry(); entry != null; entry = tar.getNextEntry()) {
                 int bits = entry.getHeader().mode;
                 boolean isDir = entry.isDirectory();
                 String name = entry.getName();
-                if (!extractFile(archive, posix, target, prefix, name, tar, bits, isDir))
+                if (!extractFile(archive, filter, writer, target, prefix, name, tar, entry.getSize(), bits, isDir))
                     return;
             }
+        } catch (InterruptedIOException e) {
+            // Cancelled, cleaned up by extractInternal
         } catch (IOException e) {
             error("    Failed to extract: " + e.getMessage());
             e.printStackTrace();
@@ -531,8 +1137,93 @@ public class Disco {
     }
 
 
+    IndexEntry indexed(Package pkg) { // Package private for CacheBundle
+        synchronized (indexLock) {
+            if (index == null)
+                index = readIndex();
+            IndexEntry ret = index.get(pkg.id);
+            if (ret == null || ret.time < oldest())
+                return null;
+            return ret;
+        }
+    }
+
+    private void index(Package pkg, Consumer<IndexEntry> update) {
+        synchronized (indexLock) {
+            if (index == null)
+                index = readIndex();
+            IndexEntry entry = index.get(pkg.id);
+            if (entry == null || entry.time < oldest()) {
+                entry = new IndexEntry();
+                entry.filename = pkg.filename;
+                entry.time = System.currentTimeMillis();
+                index.put(pkg.id, entry);
+            }
+            update.accept(entry);
+            writeIndex();
+        }
+    }
+
+    /**
+     * Called once a {@link CacheBundle} has been unpacked into this cache. Merges the bundle's index entries
+     * into ours, keeping whichever is newer, and forgets the in memory catalog so the imported one is used.
+     */
+    void imported(Map<String, IndexEntry> entries) {
+        synchronized (this) {
+            this.packages = null;
+        }
+        synchronized (indexLock) {
+            index = readIndex();
+            for (Map.Entry<String, IndexEntry> entry : entries.entrySet()) {
+                IndexEntry existing = index.get(entry.getKey());
+                if (existing == null || existing.time < entry.getValue().time)
+                    index.put(entry.getKey(), entry.getValue());
+            }
+            writeIndex();
+        }
+    }
+
+    // Must hold indexLock
+    private void writeIndex() {
+        File output = new File(cache, INFO_INDEX);
+        try {
+            FileUtils.writeAtomically(output, writer -> GSON.toJson(index, Map.class, GSON.newJsonWriter(writer)));
+        } catch (IOException | JsonIOException e) {
+            debug("Failed to write " + output + ": " + e.getMessage());
+        }
+    }
+
+    private Map<String, IndexEntry> readIndex() {
+        Map<String, IndexEntry> ret = null;
+        File input = new File(cache, INFO_INDEX);
+        if (input.exists()) {
+            try (FileReader reader = new FileReader(input)) {
+                ret = GSON.fromJson(new JsonReader(reader), new TypeToken<Map<String, IndexEntry>>(){});
+            } catch (IOException | JsonSyntaxException e) {
+                debug("Can not read cache file: " + e.getMessage());
+            }
+        }
+        if (ret == null)
+            ret = new HashMap<>();
+
+        // Drop anything stale, so the index doesn't grow forever
+        long oldest = oldest();
+        ret.values().removeIf(e -> e == null || e.time < oldest);
+        return ret;
+    }
+
+    private void hit(Metrics.Phase phase) {
+        if (metrics != null)
+            metrics.hit(phase);
+    }
+
+    private void miss(Metrics.Phase phase) {
+        if (metrics != null)
+            metrics.miss(phase);
+    }
+
     private <T> T readJson(File input, TypeToken<T> type) {
-        if (!input.exists() || input.lastModified() < System.currentTimeMillis() - CACHE_TIMEOUT)
+        if (!input.exists() || input.lastModified() < oldest())
             return null;
 
         try (FileReader reader = new FileReader(input)) {
@@ -543,15 +1234,6 @@ public class Disco {
         return null;
     }
 
-    private static <T> void writeJson(File output, T data, Class<T> type) {
-        output.getParentFile().mkdirs();
-        try (BufferedWriter out = Files.newBufferedWriter(output.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            GSON.toJson(data, type, GSON.newJsonWriter(out));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     public enum Arch {
         X86("x86", "x86", "x32", "286"),
         X64,
@@ -581,6 +1263,11 @@ public class Disco {
         UNKNOWN;
 
         private static final Arch[] $values = values();
+        private static final Map<String, Arch> BY_KEY = new HashMap<>();
+        static {
+            for (Arch value : $values)
+                BY_KEY.putIfAbsent(value.key, value);
+        }
         public static final Arch CURRENT = getCurrent();
 
         private final Arch parent;
@@ -616,24 +1303,40 @@ public class Disco {
         }
 
         public static Arch byKey(String key) {
-            for (Arch value : $values) {
-                if (value.key.equals(key))
-                    return value;
-            }
-            return null;
+            return key == null ? null : BY_KEY.get(key);
         }
 
-        private static Arch getCurrent() {
-            String prop = System.getProperty("os.arch").toLowerCase(Locale.ENGLISH);
+        /**
+         * The architecture for a name as reported by a JVM's {@code os.arch}, or a release file's {@code OS_ARCH}.
+         * @return The architecture, or null if the name is null, or {@link #UNKNOWN} if nothing matches it
+         */
+        public static Arch fromName(String name) {
+            if (name == null)
+                return null;
+
+            String prop = name.toLowerCase(Locale.ENGLISH);
             for (Arch value : $values) {
-                for (String name : value.names) {
-                    if (prop.equals(name)) {
+                for (String alias : value.names) {
+                    if (prop.equals(alias)) {
                         return value;
                     }
                 }
             }
             return UNKNOWN;
         }
+
+        /** If binaries for this run on the other, such as amd64 and x86_64 which are both x64 */
+        public boolean isCompatible(Arch other) {
+            return family() == other.family();
+        }
+
+        private Arch family() {
+            return this.parent == null ? this : this.parent;
+        }
+
+        private static Arch getCurrent() {
+            return fromName(System.getProperty("os.arch"));
+        }
     }
 
     public enum Distro implements Comparable<Distro> {
@@ -673,6 +1376,11 @@ public class Disco {
         ZULU_PRIME;
 
         private static final Distro[] $values = values();
+        private static final Map<String, Distro> BY_KEY = new HashMap<>();
+        static {
+            for (Distro value : $values)
+                BY_KEY.putIfAbsent(value.key, value);
+        }
         private final String key;
 
         private Distro() {
@@ -684,11 +1392,7 @@ public class Disco {
         }
 
         public static Distro byKey(String key) {
-            for (Distro value : $values) {
-                if (value.key.equals(key))
-                    return value;
-            }
-            return null;
+            return key == null ? null : BY_KEY.get(key);
         }
     }
 
@@ -707,6 +1411,11 @@ public class Disco {
         ZIP;
 
         private static final Archive[] $values = values();
+        private static final Map<String, Archive> BY_KEY = new HashMap<>();
+        static {
+            for (Archive value : $values)
+                BY_KEY.putIfAbsent(value.key, value);
+        }
         private final String key;
 
         private Archive() {
@@ -731,11 +1440,7 @@ public class Disco {
         }
 
         public static Archive byKey(String key) {
-            for (Archive value : $values) {
-                if (value.key.equals(key))
-                    return value;
-            }
-            return null;
+            return key == null ? null : BY_KEY.get(key);
         }
     }
 
@@ -746,80 +1451,65 @@ public class Disco {
         C_STD_LIB;
 
         private static final LibC[] $values = values();
+        private static final Map<String, LibC> BY_KEY = new HashMap<>();
+        static {
+            for (LibC value : $values)
+                BY_KEY.putIfAbsent(value.key, value);
+        }
         private final String key;
 
         private LibC() {
             this.key = this.name().toLowerCase(Locale.ENGLISH);
         }
 
-        public static LibC byKey(String key) {
-            for (LibC value : $values) {
-                if (value.key.equals(key))
-                    return value;
-            }
-            return null;
+        public String key() {
+            return this.key;
         }
-        public static final LibC CURRENT = getCurrent();
-
-        private static final LibC getCurrent() {
-            if (OS.CURRENT == OS.MUSL)
-                return MUSL;
-            if (OS.CURRENT != OS.LINUX && OS.CURRENT != OS.ALPINE)
-                return GLIBC;
-
-            ProcessUtils.Result getconf = ProcessUtils.runCommand("getconf", "GNU_LIBC_VERSION");
-            if (getconf.exitCode == 0) {
-                for (String line : getconf.lines) {
-                    if (line.toLowerCase(Locale.ENGLISH).contains("musl"))
-                        return MUSL;
-                }
-            } else {
-                Log.error("Failed to run `getconf GNU_LIBC_VERSION`: " + getconf.lines.get(0));
-            }
 
-            ProcessUtils.Result ldd = ProcessUtils.runCommand("ldd", "--version");
-            if (ldd.exitCode == 0) {
-                for (String line : ldd.lines) {
-                    if (line.toLowerCase(Locale.ENGLISH).contains("musl"))
-                        return MUSL;
-                }
-            } else {
-                Log.error("Failed to run `ldd --version`: " + ldd.lines.get(0));
-            }
-            return GLIBC;
+        public static LibC byKey(String key) {
+            return key == null ? null : BY_KEY.get(key);
         }
     }
 
     @SuppressWarnings("unused")
-    private static class Response<T> {
+    static class Response<T> { // Package private for benchmarks
         public final String raw;
         private final List<T> entries;
         public final String message;
 
         Response(String raw, final Class<T> clazz) {
-            this(raw, e -> GSON.fromJson(e, clazz));
+            this(raw, GSON.getAdapter(clazz));
         }
 
-        Response(String raw, Parser<T> converter) {
+        // Streams the entries straight out of the response, without building a tree of the whole thing first
+        Response(String raw, TypeAdapter<T> adapter) {
             this.raw = raw;
 
             String message = null;
             List<T> entries = null;
 
             try {
-                JsonObject root = GSON.fromJson(raw, JsonObject.class);
-                if (root.has("message"))
-                    message = root.get("message").getAsString();
-
-                JsonArray result = root.getAsJsonArray("result");
-                if (result != null) {
-                    List<T> tmp = new ArrayList<>();
-                    for (JsonElement entry : result) {
-                        tmp.add(converter.apply(entry));
+                JsonReader in = new JsonReader(new StringReader(raw));
+                in.setLenient(true);
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    JsonToken token = in.peek();
+                    if ("message".equals(name) && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                        message = in.nextString();
+                    } else if ("result".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                        List<T> tmp = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext())
+                            tmp.add(adapter.read(in));
+                        in.endArray();
+                        entries = Collections.unmodifiableList(tmp);
+                    } else {
+                        in.skipValue();
                     }
-                    entries = Collections.unmodifiableList(tmp);
                 }
-            } catch (JsonSyntaxException e) {
+                in.endObject();
+            } catch (IOException | IllegalStateException | JsonParseException e) {
                 e.printStackTrace();
             }
 
@@ -830,10 +1520,6 @@ public class Disco {
         public List<T> entries() {
             return this.entries == null ? Collections.<T>emptyList() : this.entries;
         }
-
-        public static interface Parser<T> {
-            T apply(JsonElement e) throws JsonSyntaxException;
-        }
     }
 
     /*
@@ -934,34 +1620,37 @@ public class Disco {
             public String pkg_download_redirect;
         }
 
+        // Everything compareTo needs before the java version, packed so that ascending order is preferred order:
+        // newest jdk_version first, then distro and libc in enum order with unknowns last.
+        // Each part is 16 bits, so a packed rank never uses the sign bit and can't be the -1 "not computed" value.
+        private transient long rank = -1;
+        private long rank() {
+            if (rank == -1) {
+                Distro distro = distro();
+                LibC libC = libC();
+                rank = ((long)(0xFFFF - (jdk_version & 0xFFFF)) << 32)
+                     | ((long)(distro == null ? 0xFFFF : distro.ordinal()) << 16)
+                     | (long)(libC == null ? 0xFFFF : libC.ordinal());
+            }
+            return rank;
+        }
+
         @Override
         public int compareTo(Package o) {
             if (o == null)
                 return -1;
-            if (jdk_version != o.jdk_version)
-                return o.jdk_version - jdk_version;
-            if (compare(distro(), o.distro()) != 0)
-                return compare(distro(), o.distro());
-            if (compare(libC(), o.libC()) != 0)
-                return compare(libC(), o.libC());
-
-            if (javaVersion() != null)
-                return javaVersion().compareTo(o.javaVersion());
-            else if (o.javaVersion() != null)
-                return -1;
+            if (rank() != o.rank())
+                return Long.compare(rank(), o.rank());
+
+            JavaVersion v1 = javaVersion();
+            JavaVersion v2 = o.javaVersion();
+            if (v1 != null)
+                return v2 == null ? -1 : v1.compareTo(v2);
+            else if (v2 != null)
+                return 1;
 
             return 0;
         }
-
-        private <T extends Enum<T>> int compare(T e1, T e2) {
-            if (e1 == null && e2 != null)
-                return 1;
-            if (e1 != null && e2 == null)
-                return -1;
-            if (e1 == e2)
-                return 0;
-            return e1.compareTo(e2);
-        }
     }
 
     /*
@@ -976,22 +1665,43 @@ public class Disco {
      *}
      */
     public static class PackageInfo {
-        public final String filename = null;
-        public final String direct_download_uri = null;
-        public final String download_side_uri = null;
-        public final String signature_uri = null;
-        public final String checksum_uri = null;
-        public final String checksum = null;
-        public final String checksum_type = null;
-    }
-
-    // Just a helper class that wraps all the information we know about a file, saved in the cache for easy reference
-    private static class DownloadInfo {
-        @SuppressWarnings("unused")
-        private Package pkg;
-        private PackageInfo info;
-
-        private DownloadInfo(Package pkg, PackageInfo info) {
+        public final String filename;
+        public final String direct_download_uri;
+        public final String download_side_uri;
+        public final String signature_uri;
+        public final String checksum_uri;
+        public final String checksum;
+        public final String checksum_type;
+
+        PackageInfo(String filename, String direct_download_uri, String download_side_uri, String signature_uri,
+            String checksum_uri, String checksum, String checksum_type) {
+            this.filename = filename;
+            this.direct_download_uri = direct_download_uri;
+            this.download_side_uri = download_side_uri;
+            this.signature_uri = signature_uri;
+            this.checksum_uri = checksum_uri;
+            this.checksum = checksum;
+            this.checksum_type = checksum_type;
+        }
+    }
+
+    // Everything we know about a package, saved in the cache's info index
+    static class IndexEntry { // Package private for DiscoAdapters
+        String filename;
+        PackageInfo info;
+        // Contents of the info's checksum_uri
+        String checksum;
+        // Where the package's download redirect pointed
+        String location;
+        long time;
+    }
+
+    // The per package cache file written by older versions
+    static class DownloadInfo { // Package private for DiscoAdapters
+        final Package pkg;
+        final PackageInfo info;
+
+        DownloadInfo(Package pkg, PackageInfo info) {
             this.pkg = pkg;
             this.info = info;
         }
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import net.minecraftforge.java_provisioner.Disco.DownloadInfo;
+import net.minecraftforge.java_provisioner.Disco.IndexEntry;
+import net.minecraftforge.java_provisioner.Disco.Package;
+import net.minecraftforge.java_provisioner.Disco.PackageInfo;
+
+/**
+ * Streaming adapters for the disco model classes. The catalog is thousands of packages, so reading it
+ * reflectively, and running every string through a separate adapter, was most of the time it took to load.
+ * <p>
+ * Empty strings are read and written as nulls, matching what the API sends for missing values.
+ * Unknown fields are skipped.
+ */
+final class DiscoAdapters {
+    static final TypeAdapter<Package> PACKAGE = new PackageAdapter();
+    static final TypeAdapter<PackageInfo> PACKAGE_INFO = new PackageInfoAdapter();
+    static final TypeAdapter<DownloadInfo> DOWNLOAD_INFO = new DownloadInfoAdapter();
+    static final TypeAdapter<IndexEntry> INDEX_ENTRY = new IndexEntryAdapter();
+    static final TypeAdapter<InstallMetadata> INSTALL_METADATA = new InstallMetadataAdapter();
+
+    private DiscoAdapters() {}
+
+    static GsonBuilder register(GsonBuilder builder) {
+        return builder
+            .registerTypeAdapter(Package.class, PACKAGE)
+            .registerTypeAdapter(PackageInfo.class, PACKAGE_INFO)
+            .registerTypeAdapter(DownloadInfo.class, DOWNLOAD_INFO)
+            .registerTypeAdapter(IndexEntry.class, INDEX_ENTRY)
+            .registerTypeAdapter(InstallMetadata.class, INSTALL_METADATA);
+    }
+
+    private static String string(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN)
+            return Boolean.toString(in.nextBoolean());
+        String ret = in.nextString();
+        return ret.isEmpty() ? null : ret;
+    }
+
+    private static int integer(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static long number(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    private static boolean bool(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        if (token == JsonToken.STRING)
+            return Boolean.parseBoolean(in.nextString());
+        return in.nextBoolean();
+    }
+
+    private static List<String> strings(JsonReader in) throws IOException {
+        if (isNull(in))
+            return null;
+
+        List<String> ret = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            String value = string(in);
+            if (value != null)
+                ret.add(value);
+        }
+        in.endArray();
+        return ret;
+    }
+
+    private static void string(JsonWriter out, String name, String value) throws IOException {
+        if (value != null && !value.isEmpty())
+            out.name(name).value(value);
+    }
+
+    // Reads null as null, for object values
+    private static boolean isNull(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.NULL)
+            return false;
+        in.nextNull();
+        return true;
+    }
+
+    private static final class PackageAdapter extends TypeAdapter<Package> {
+        @Override
+        public void write(JsonWriter out, Package value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            string(out, "id", value.id);
+            string(out, "archive_type", value.archive_type);
+            string(out, "distribution", value.distribution);
+            out.name("major_version").value(value.major_version);
+            string(out, "java_version", value.java_version);
+            out.name("jdk_version").value(value.jdk_version);
+            string(out, "operating_system", value.operating_system);
+            string(out, "lib_c_type", value.lib_c_type);
+            string(out, "architecture", value.architecture);
+            out.name("javafx_bundled").value(value.javafx_bundled);
+            string(out, "filename", value.filename);
+            if (value.links != null) {
+                out.name("links").beginObject();
+                string(out, "pkg_info_uri", value.links.pkg_info_uri);
+                string(out, "pkg_download_redirect", value.links.pkg_download_redirect);
+                out.endObject();
+            }
+            out.name("size").value(value.size);
+            out.endObject();
+        }
+
+        @Override
+        public Package read(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            Package ret = new Package();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":               ret.id = string(in); break;
+                    case "archive_type":     ret.archive_type = string(in); break;
+                    case "distribution":     ret.distribution = string(in); break;
+                    case "major_version":    ret.major_version = integer(in); break;
+                    case "java_version":     ret.java_version = string(in); break;
+                    case "jdk_version":      ret.jdk_version = integer(in); break;
+                    case "operating_system": ret.operating_system = string(in); break;
+                    case "lib_c_type":       ret.lib_c_type = string(in); break;
+                    case "architecture":     ret.architecture = string(in); break;
+                    case "javafx_bundled":   ret.javafx_bundled = bool(in); break;
+                    case "filename":         ret.filename = string(in); break;
+                    case "links":            ret.links = links(in); break;
+                    case "size":             ret.size = integer(in); break;
+                    default:                 in.skipValue(); break;
+                }
+            }
+            in.endObject();
+
+            // Resolve the enums now, everything that reads the catalog filters on them anyway
+            ret.archive();
+            ret.distro();
+            ret.os();
+            ret.libC();
+            ret.arch();
+            return ret;
+        }
+
+        private static Package.Links links(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            Package.Links ret = new Package.Links();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pkg_info_uri":          ret.pkg_info_uri = string(in); break;
+                    case "pkg_download_redirect": ret.pkg_download_redirect = string(in); break;
+                    default:                      in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return ret;
+        }
+    }
+
+    private static final class PackageInfoAdapter extends TypeAdapter<PackageInfo> {
+        @Override
+        public void write(JsonWriter out, PackageInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            string(out, "filename", value.filename);
+            string(out, "direct_download_uri", value.direct_download_uri);
+            string(out, "download_side_uri", value.download_side_uri);
+            string(out, "signature_uri", value.signature_uri);
+            string(out, "checksum_uri", value.checksum_uri);
+            string(out, "checksum", value.checksum);
+            string(out, "checksum_type", value.checksum_type);
+            out.endObject();
+        }
+
+        @Override
+        public PackageInfo read(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            String filename = null, direct = null, site = null, signature = null, checksumUri = null, checksum = null, checksumType = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "filename":            filename = string(in); break;
+                    case "direct_download_uri": direct = string(in); break;
+                    case "download_site_uri": // What the API actually calls it
+                    case "download_side_uri":   site = string(in); break;
+                    case "signature_uri":       signature = string(in); break;
+                    case "checksum_uri":        checksumUri = string(in); break;
+                    case "checksum":            checksum = string(in); break;
+                    case "checksum_type":       checksumType = string(in); break;
+                    default:                    in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new PackageInfo(filename, direct, site, signature, checksumUri, checksum, checksumType);
+        }
+    }
+
+    private static final class DownloadInfoAdapter extends TypeAdapter<DownloadInfo> {
+        @Override
+        public void write(JsonWriter out, DownloadInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            if (value.pkg != null) {
+                out.name("pkg");
+                PACKAGE.write(out, value.pkg);
+            }
+            if (value.info != null) {
+                out.name("info");
+                PACKAGE_INFO.write(out, value.info);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public DownloadInfo read(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            Package pkg = null;
+            PackageInfo info = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pkg":  pkg = PACKAGE.read(in); break;
+                    case "info": info = PACKAGE_INFO.read(in); break;
+                    default:     in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new DownloadInfo(pkg, info);
+        }
+    }
+
+    private static final class IndexEntryAdapter extends TypeAdapter<IndexEntry> {
+        @Override
+        public void write(JsonWriter out, IndexEntry value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            string(out, "filename", value.filename);
+            if (value.info != null) {
+                out.name("info");
+                PACKAGE_INFO.write(out, value.info);
+            }
+            string(out, "checksum", value.checksum);
+            string(out, "location", value.location);
+            out.name("time").value(value.time);
+            out.endObject();
+        }
+
+        @Override
+        public IndexEntry read(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            IndexEntry ret = new IndexEntry();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "filename": ret.filename = string(in); break;
+                    case "info":     ret.info = PACKAGE_INFO.read(in); break;
+                    case "checksum": ret.checksum = string(in); break;
+                    case "location": ret.location = string(in); break;
+                    case "time":     ret.time = number(in); break;
+                    default:         in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return ret;
+        }
+    }
+
+    private static final class InstallMetadataAdapter extends TypeAdapter<InstallMetadata> {
+        @Override
+        public void write(JsonWriter out, InstallMetadata value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            string(out, "id", value.id);
+            string(out, "filename", value.filename);
+            string(out, "profile", value.profile == null ? null : value.profile.key());
+            string(out, "state", value.state == null ? null : value.state.key());
+            string(out, "cds", value.cds == null ? null : value.cds.key());
+            string(out, "source", value.source);
+            if (value.modules != null) {
+                out.name("modules").beginArray();
+                for (String module : value.modules)
+                    out.value(module);
+                out.endArray();
+            }
+            out.name("time").value(value.time);
+            out.endObject();
+        }
+
+        @Override
+        public InstallMetadata read(JsonReader in) throws IOException {
+            if (isNull(in))
+                return null;
+
+            InstallMetadata ret = new InstallMetadata();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":       ret.id = string(in); break;
+                    case "filename": ret.filename = string(in); break;
+                    case "profile":  ret.profile = ExtractionProfile.byKey(string(in)); break;
+                    case "state":    ret.state = InstallMetadata.State.byKey(string(in)); break;
+                    case "cds":      ret.cds = InstallMetadata.Cds.byKey(string(in)); break;
+                    case "source":   ret.source = string(in); break;
+                    case "modules":  ret.modules = strings(in); break;
+                    case "time":     ret.time = number(in); break;
+                    default:         in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return ret;
+        }
+    }
+}
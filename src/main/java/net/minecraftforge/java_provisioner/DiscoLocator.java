@@ -6,12 +6,25 @@ package net.minecraftforge.java_provisioner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.minecraftforge.java_provisioner.Disco.Arch;
 import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.ILocatorListener;
+import net.minecraftforge.java_provisioner.api.ILocatorListener.Source;
 import net.minecraftforge.java_provisioner.util.OS;
+import net.minecraftforge.java_provisioner.util.ReleaseFile;
 
 /**
  * Locates java installs that have been downloaded from the <a href="https://github.com/foojayio/discoapi">disco API</a>
@@ -30,46 +43,111 @@ import net.minecraftforge.java_provisioner.util.OS;
  * If this becomes and issue {it hasn't in the 10 years that FG has not given a fuck} then I can re-address this.
  */
 public class DiscoLocator extends JavaHomeLocator {
+    private static final int PREFETCH = 3;
+
     private final File cache;
+    private final List<String> providers;
     private final boolean offline;
+    private ExtractionProfile profile = ExtractionProfile.FULL;
+    private boolean lazy;
+    private boolean cds;
 
     public DiscoLocator(File cache) {
         this(cache, false);
     }
 
     public DiscoLocator(File cache, boolean offline) {
+        this(cache, (String)null, offline);
+    }
+
+    /**
+     * @param provider The disco API endpoint to use, a comma separated list of them in order of preference,
+     *                 or null for the default public API
+     */
+    public DiscoLocator(File cache, String provider, boolean offline) {
+        this(cache, DiscoProviders.parse(provider), offline);
+    }
+
+    /**
+     * @param providers The disco API endpoints to use in order of preference, failing over to the next when one is
+     *                  slow or down
+     */
+    public DiscoLocator(File cache, List<String> providers, boolean offline) {
         this.cache = cache;
+        this.providers = providers;
         this.offline = offline;
     }
 
+    /**
+     * Sets what provisioned installs need to contain. Installs extracted with a smaller profile are not
+     * returned when searching, and are upgraded in place when provisioning.
+     */
+    public void setProfile(ExtractionProfile profile) {
+        this.profile = profile == null ? ExtractionProfile.FULL : profile;
+    }
+
+    /**
+     * Returns provisioned installs as soon as they can run and compile, finishing the rest of the profile in the
+     * background. See {@link Disco#setLazy(boolean)}.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Generates class data sharing archives for provisioned installs that don't have one.
+     * See {@link Disco#setCds(boolean)}.
+     */
+    public void setCds(boolean cds) {
+        this.cds = cds;
+    }
+
+    @Override
+    protected Collection<File> roots() {
+        return Collections.singletonList(cache);
+    }
+
     @Override
     public File find(int version) {
-        List<IJavaInstall> results = findInternal(version);
+        List<IJavaInstall> results = findInternal(version, profile);
         return results.isEmpty() ? null : results.get(0).home();
     }
 
     @Override
     public List<IJavaInstall> findAll() {
-        return findInternal(-1);
+        return findInternal(-1, profile);
     }
 
-    private List<IJavaInstall> findInternal(int version) {
+    private List<IJavaInstall> findInternal(int version, ExtractionProfile profile) {
         if (!cache.exists() || !cache.isDirectory())
             return Collections.emptyList();
 
         List<IJavaInstall> results = new ArrayList<>();
         for (File dir : cache.listFiles()) {
-            if (!dir.isDirectory())
+            // Slim runtimes only have some modules, so are only handed out by asking for them
+            if (!dir.isDirectory() || dir.getName().equals(SlimRuntimes.DIRECTORY))
                 continue;
 
-            log("Disco Cache: \"" + dir.getAbsolutePath() + "\"");
+            if (listener != null)
+                listener.searching(Source.DIRECTORY, "Disco Cache", dir.getAbsolutePath());
+
+            // Checked before probing, so installs that can't be used don't cost a process launch
+            ExtractionProfile existing = InstallMetadata.profile(dir);
+            if (existing == null) {
+                log("Skipping " + dir.getName() + ", it is still being extracted");
+                continue;
+            } else if (!existing.covers(profile)) {
+                String state = InstallMetadata.isComplete(dir) ? "only has" : "is partially extracted with";
+                log("Skipping " + dir.getName() + ", it " + state + " the " + existing.key() + " profile, need " + profile.key());
+                continue;
+            }
 
             IJavaInstall ret = fromPath(dir);
             if (ret != null) {
                 if (version == -1) {
                     results.add(ret);
                 } else if (ret.majorVersion() != version) {
-                    log("  Wrong version: Was " + ret.majorVersion() + " wanted " + version);
+                    wrongVersion(ret, version);
                 } else {
                     results.add(ret);
                     return results;
@@ -82,35 +160,192 @@ public class DiscoLocator extends JavaHomeLocator {
 
     @Override
     public IJavaInstall provision(int version) {
-        log("Locators failed to find any suitable installs, attempting Disco download");
-        Disco disco = new Disco(cache, offline) { // TODO: [DISCO][Logging] Add a proper logging handler sometime
+        return provision(version, profile);
+    }
+
+    /**
+     * Returns a runtime with only the specified modules, linked by jlink from a JDK of the specified version, which
+     * is provisioned if needed. Linked runtimes are cached by source JDK and module set, so asking for the same
+     * modules again returns the same runtime.
+     *
+     * @param version The major version, must be 9 or newer as jlink needs modules
+     * @param modules The root modules, such as java.base or java.compiler, whatever they require is added by jlink
+     * @return The runtime, or null if no JDK could be found or provisioned, or linking failed
+     */
+    public IJavaInstall provisionSlim(int version, Collection<String> modules) {
+        if (version < 9) {
+            if (listener != null)
+                listener.message(ILocatorListener.Level.ERROR, "Can not link a slim runtime for java " + version + ", jlink needs 9 or newer");
+            return null;
+        }
+
+        // jlink needs the jmods, which only the full profile has
+        List<IJavaInstall> found = findInternal(version, ExtractionProfile.FULL);
+        IJavaInstall source = found.isEmpty() ? provision(version, ExtractionProfile.FULL) : found.get(0);
+        return source == null ? null : slim(source, modules);
+    }
+
+    /**
+     * Returns a runtime with only the specified modules, linked by jlink from the specified JDK, and cached in this
+     * locator's cache.
+     *
+     * @see #provisionSlim(int, Collection)
+     */
+    public IJavaInstall slim(IJavaInstall source, Collection<String> modules) {
+        List<String> sorted = SlimRuntimes.normalize(modules);
+        ReleaseFile release = ReleaseFile.read(source.home());
+        String version = release != null && release.javaVersion() != null ? release.javaVersion() : source.version();
+        File dir = SlimRuntimes.directory(cache, source.home(), version, sorted);
+        if (SlimRuntimes.exists(dir)) {
+            if (metrics != null)
+                metrics.hit(Metrics.Phase.LINK);
+            return fromPath(dir);
+        }
+
+        if (!source.isJdk() || source.majorVersion() < 9) {
+            if (listener != null)
+                listener.message(ILocatorListener.Level.ERROR, "Can not link a slim runtime from " + source.home() + ", it needs to be a 9 or newer JDK");
+            return null;
+        }
+
+        log("Linking " + String.join(",", sorted) + " from " + source.home() + " to " + dir);
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>();
+        boolean linked = SlimRuntimes.link(source.home(), sorted, dir, lines);
+        if (metrics != null) {
+            metrics.miss(Metrics.Phase.LINK);
+            metrics.time(Metrics.Phase.LINK, start);
+        }
+        if (!linked) {
+            if (listener != null) {
+                listener.message(ILocatorListener.Level.ERROR, "Failed to link slim runtime " + dir);
+                for (String line : lines)
+                    listener.message(ILocatorListener.Level.ERROR, "    " + line);
+            }
+            return null;
+        }
+
+        return fromPath(dir);
+    }
+
+    /**
+     * Provisions several versions at once. They share one catalog lookup, and each version is downloaded and
+     * extracted on its own thread, so a slow download doesn't hold up the others.
+     *
+     * @return Each version, in the order given, with its install or null if provisioning it failed
+     */
+    public Map<Integer, IJavaInstall> provision(Collection<Integer> versions) {
+        Set<Integer> unique = new LinkedHashSet<>(versions);
+        Map<Integer, IJavaInstall> ret = new LinkedHashMap<>();
+        for (int version : unique)
+            ret.put(version, null);
+        if (unique.size() <= 1) {
+            for (int version : unique)
+                ret.put(version, provision(version));
+            return ret;
+        }
+
+        Disco disco = disco(profile);
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(unique.size(), r -> {
+            Thread thread = new Thread(r, "DiscoLocator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<Integer, Future<IJavaInstall>> futures = new LinkedHashMap<>();
+            for (int version : unique)
+                futures.put(version, pool.submit(() -> provision(disco, version, profile)));
+
+            for (Map.Entry<Integer, Future<IJavaInstall>> entry : futures.entrySet()) {
+                try {
+                    ret.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    if (listener != null)
+                        listener.message(ILocatorListener.Level.ERROR, "Failed to provision " + entry.getKey() + ": " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stop everything still downloading or extracting, they clean up after themselves
+            Thread.currentThread().interrupt();
+            log("Provisioning cancelled");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return ret;
+    }
+
+    private IJavaInstall provision(int version, ExtractionProfile profile) {
+        return provision(disco(profile), version, profile);
+    }
+
+    private Disco disco(ExtractionProfile profile) {
+        Disco disco = new Disco(cache, providers, offline) {
             @Override
             protected void debug(String message) {
-                DiscoLocator.this.log(message);
+                if (listener != null)
+                    listener.message(ILocatorListener.Level.DEBUG, message);
             }
 
             @Override
             protected void error(String message) {
-                DiscoLocator.this.log(message);
+                if (listener != null)
+                    listener.message(ILocatorListener.Level.ERROR, message);
             }
         };
+        disco.setMetrics(metrics);
+        disco.setListener(listener);
+        disco.setProfile(profile);
+        disco.setLazy(lazy);
+        disco.setCds(cds);
+        return disco;
+    }
 
+    private IJavaInstall provision(Disco disco, int version, ExtractionProfile profile) {
+        log("Locators failed to find any suitable installs for " + version + ", attempting Disco download");
         List<Disco.Package> jdks = disco.getPackages(version);
-        Disco.Package pkg = null;
         if (jdks == null || jdks.isEmpty()) {
-            log("Failed to find any distros drom Disco for " + version + " " + OS.CURRENT + " " + Arch.CURRENT);
-        } else {
-            log("Found " + jdks.size() + " download canidates");
-            pkg = jdks.get(0);
-            log("Selected " + pkg.distribution + ": " + pkg.filename);
+            if (listener != null)
+                listener.message(ILocatorListener.Level.ERROR, "Failed to find any distros drom Disco for " + version + " " + OS.CURRENT + " " + Arch.CURRENT);
+            return null;
         }
 
-        File java_home = disco.extract(pkg);
+        log("Found " + jdks.size() + " download canidates");
+        // Adding the missing files to something we already have beats downloading and extracting a whole new one
+        for (int x = 0; x < jdks.size(); x++) {
+            if (new File(disco.getExtractedDir(jdks.get(x)), "bin/java" + OS.CURRENT.exe()).exists()) {
+                jdks = new ArrayList<>(jdks);
+                jdks.add(0, jdks.remove(x));
+                break;
+            }
+        }
 
-        if (java_home == null)
-            return null;
+        // Look up the best few at once, so if the first one fails the next is ready to go
+        disco.prefetch(jdks, PREFETCH);
+
+        for (int x = 0; x < jdks.size() && x < PREFETCH; x++) {
+            if (Thread.currentThread().isInterrupted()) {
+                log("Provisioning cancelled");
+                return null;
+            }
+
+            Disco.Package pkg = jdks.get(x);
+            log("Selected " + pkg.distribution + ": " + pkg.filename);
+
+            File existing = disco.getExtractedDir(pkg);
+            ExtractionProfile had = InstallMetadata.profile(existing);
+            boolean upgrade = new File(existing, "bin/java" + OS.CURRENT.exe()).exists() && had != null && !had.covers(profile);
+
+            File java_home = disco.extract(pkg);
+            if (java_home != null) {
+                // Adding files doesn't touch the executable, so the cached probe would still say it's a JRE
+                if (upgrade)
+                    invalidate(java_home);
+                return fromPath(java_home);
+            }
+        }
 
-        IJavaInstall result = fromPath(java_home);
-        return result;
+        return null;
     }
 }
@@ -5,6 +5,8 @@
 package net.minecraftforge.java_provisioner;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
@@ -28,6 +30,10 @@ public class DiscoMain {
                 "Directory to store data needed for this program")
                 .withRequiredArg().ofType(File.class).defaultsTo(new File("cache"));
 
+        OptionSpec<String> providerO = parser.accepts("provider",
+                "Disco API endpoint to use, can be specified multiple times to fail over in order of preference")
+                .withRequiredArg().ofType(String.class).defaultsTo(Disco.DEFAULT_PROVIDER);
+
         OptionSpec<Void> downloadJdkO = parser.accepts("download-jdk", "Download an extracts a JDK");
         OptionSpec<Integer> javeVersionO = parser.accepts("java-version",
                 "Major version of java to download, will attempt the highest version avalible if unspecified")
@@ -37,12 +43,28 @@ public class DiscoMain {
                 .withRequiredArg().withValuesConvertedBy(converter(Disco.Arch.class)).defaultsTo(Disco.Arch.CURRENT);
         OptionSpec<OS> osO = parser.acceptsAll(l("os", "operating-system"),
                 "Operating System for use in Disco api")
-                .withRequiredArg().withValuesConvertedBy(converter(OS.class)).defaultsTo(OS.CURRENT);
+                .withRequiredArg().withValuesConvertedBy(converter(OS.class));
         OptionSpec<Disco.Distro> distroO = parser.acceptsAll(l("distro", "distribution"),
                 "Distribution for use in Disco api")
                 .withRequiredArg().withValuesConvertedBy(converter(Disco.Distro.class)).defaultsTo(Disco.Distro.TEMURIN);
         OptionSpec<Void> autoO = parser.accepts("auto",
                 "Auto select a JDK to download without prompting if there are multiple options");
+        OptionSpec<ExtractionProfile> profileO = parser.accepts("profile",
+                "What to extract: full, tools (no sources, jmods, docs or demos), or minimal (only what is needed to run java)")
+                .withRequiredArg().withValuesConvertedBy(converter(ExtractionProfile.class)).defaultsTo(ExtractionProfile.FULL);
+        OptionSpec<Void> cdsO = parser.accepts("cds",
+                "Generate a class data sharing archive if the JDK doesn't come with one");
+
+        OptionSpec<File> exportO = parser.accepts("export-bundle",
+                "Write the cached packages matching --java-version, --arch, --os and --distro to a bundle file")
+                .withRequiredArg().ofType(File.class);
+        OptionSpec<File> importO = parser.accepts("import-bundle",
+                "Verify and unpack a bundle file into the cache, so it can be used offline")
+                .withRequiredArg().ofType(File.class);
+        OptionSpec<Void> bundleArchivesO = parser.accepts("bundle-archives",
+                "Only include downloaded archives in the exported bundle");
+        OptionSpec<Void> bundleInstallsO = parser.accepts("bundle-installs",
+                "Only include extracted installs in the exported bundle");
 
         OptionSet options = parser.parse(args);
 
@@ -52,14 +74,31 @@ public class DiscoMain {
         boolean success = true;
         if (options.has(helpO)) {
             parser.printHelpOn(Log.INFO);
+        } else if (options.has(exportO)) {
+            boolean all = !options.has(bundleArchivesO) && !options.has(bundleInstallsO);
+            success = exportBundle(
+                options.valueOf(exportO),
+                options.hasArgument(javeVersionO) ? javeVersionO.value(options) : -1,
+                options.has(archO) ? archO.value(options) : null,
+                options.has(osO) ? osO.value(options) : null,
+                options.has(distroO) ? distroO.value(options) : null,
+                all || options.has(bundleArchivesO),
+                all || options.has(bundleInstallsO),
+                cache
+            );
+        } else if (options.has(importO)) {
+            success = importBundle(options.valueOf(importO), cache);
         } else if (options.has(downloadJdkO)) {
             success = downloadJdk(
                 options.hasArgument(javeVersionO) ? javeVersionO.value(options) : -1,
                 archO.value(options),
-                osO.value(options),
+                options.has(osO) ? osO.value(options) : Host.current(new File(cache, "jdks")).os(),
                 distroO.value(options),
                 options.has(autoO),
-                cache
+                cache,
+                options.valuesOf(providerO),
+                profileO.value(options),
+                options.has(cdsO)
             );
         } else {
             parser.printHelpOn(Log.INFO);
@@ -69,13 +108,59 @@ public class DiscoMain {
             System.exit(1);
     }
 
+    private static boolean exportBundle(File bundle, int javaVersion, Disco.Arch arch, OS os, Disco.Distro distro,
+        boolean archives, boolean installs, File cache) {
+        // Only what is already cached can be exported, so there is no reason to touch the network
+        Disco disco = new Disco(new File(cache, "jdks"), true);
+        List<Disco.Package> all = disco.getPackages();
+        if (all == null) {
+            Log.error("No package list in " + cache.getAbsolutePath() + ", download something first");
+            return false;
+        }
+
+        List<Disco.Package> pkgs = new ArrayList<>();
+        for (Disco.Package pkg : all) {
+            if ((javaVersion == -1 || pkg.jdk_version == javaVersion) && (arch == null || pkg.arch() == arch)
+                && (os == null || pkg.os() == os) && (distro == null || pkg.distro() == distro))
+                pkgs.add(pkg);
+        }
+
+        try {
+            List<Disco.Package> exported = new CacheBundle(disco).exportTo(bundle, pkgs, archives, installs);
+            if (exported.isEmpty()) {
+                Log.error("Nothing matching was found in the cache");
+                bundle.delete();
+                return false;
+            }
+            for (Disco.Package pkg : exported)
+                Log.info("Exported " + pkg.filename);
+            Log.info("Bundle: " + bundle.getAbsolutePath() + " (" + bundle.length() / 1024 / 1024 + " MB)");
+            return true;
+        } catch (IOException e) {
+            Log.error("Failed to export bundle: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean importBundle(File bundle, File cache) {
+        Disco disco = new Disco(new File(cache, "jdks"), true);
+        try {
+            for (String filename : new CacheBundle(disco).importFrom(bundle))
+                Log.info("Imported " + filename);
+            return true;
+        } catch (IOException e) {
+            Log.error("Failed to import bundle: " + e.getMessage());
+            return false;
+        }
+    }
+
     private static List<String> l(String...strings) {
         return Arrays.asList(strings);
     }
 
     private static boolean downloadJdk(
         int javaVersion, Disco.Arch arch, OS os, Disco.Distro distro,
-        boolean auto, File cache
+        boolean auto, File cache, List<String> providers, ExtractionProfile profile, boolean cds
     ) {
 
         if (arch == Disco.Arch.UNKNOWN) {
@@ -97,8 +182,12 @@ public class DiscoMain {
         Log.info("    Arch:    " + (arch   == null ? "null" : arch  .name()));
         Log.info("    OS:      " + (os     == null ? "null" : os    .name()));
         Log.info("    Distro:  " + (distro == null ? "null" : distro.name()));
+        Log.info("    Profile: " + (profile == null ? "null" : profile.name()));
         Log.info("    Cache:   " + cache.getAbsolutePath());
-        Disco disco = new Disco(new File(cache, "jdks"));
+        Disco disco = new Disco(new File(cache, "jdks"), providers, false);
+        disco.setListener(new ConsoleProgress());
+        disco.setProfile(profile);
+        disco.setCds(cds);
 
         List<Disco.Package> jdks = disco.getPackages(javaVersion, os, distro, arch);
         Disco.Package pkg = null;
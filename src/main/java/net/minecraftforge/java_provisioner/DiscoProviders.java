@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.minecraftforge.java_provisioner.util.FileUtils;
+
+/**
+ * An ordered list of disco API endpoints, such as internal mirrors followed by the public API.
+ * <p>
+ * Every request made to an endpoint is {@link #record(Endpoint, long, boolean) recorded}, keeping a moving
+ * average of its latency and error rate. Requests then go to the healthiest endpoint first, and fail over to
+ * the next. Endpoints that are within half again of the best one's latency are kept in the order they were
+ * given, so a preferred mirror isn't abandoned for being a few milliseconds slower than the public API.
+ * <p>
+ * Endpoints that fail are put in a cool down, which doubles with every consecutive failure, and are only
+ * tried again once everything else has failed or the cool down is over. When given a cache directory, this
+ * is saved as {@code providers.json} so that the next run doesn't have to wait on a dead endpoint again.
+ * <p>
+ * Thread safe, so a single instance can be shared by multiple {@link Disco} instances.
+ */
+public final class DiscoProviders {
+    private static final String CACHE_FILE = "providers.json";
+    private static final double ALPHA = 0.3; // Weight of the newest sample in the moving averages
+    private static final double TOLERANCE = 1.5;
+    private static final double ERROR_PENALTY = 4;
+    private static final long COOLDOWN = 1000 * 30; // 30 seconds
+    private static final long MAX_COOLDOWN = 1000 * 60 * 10; // 10 minutes
+    private static final long REMEASURE = 1000 * 60 * 5; // 5 minutes
+    private static final long STATS_TIMEOUT = 1000 * 60 * 60 * 12; // 12 hours
+    private static final long WRITE_INTERVAL = 1000 * 5; // 5 seconds
+
+    public static final class Endpoint {
+        private final String url;
+        private final int order;
+        private double latency = Double.NaN; // Milliseconds
+        private double errors;
+        private int failures;
+        private long failed;
+        private long updated;
+        private long requests;
+
+        private Endpoint(String url, int order) {
+            this.url = url;
+            this.order = order;
+        }
+
+        public String url() {
+            return this.url;
+        }
+
+        /** Moving average of request time in milliseconds, NaN if it has not been used yet */
+        public synchronized double latency() {
+            return this.latency;
+        }
+
+        /** Moving average of failed requests, between 0 and 1 */
+        public synchronized double errorRate() {
+            return this.errors;
+        }
+
+        /** Requests made to this endpoint by this instance */
+        public synchronized long requests() {
+            return this.requests;
+        }
+
+        /** If this endpoint has recently failed, and should only be used when nothing else works */
+        public synchronized boolean coolingDown(long now) {
+            if (this.failures == 0)
+                return false;
+            long cooldown = Math.min(MAX_COOLDOWN, COOLDOWN << Math.min(this.failures - 1, 20));
+            return now - this.failed < cooldown;
+        }
+
+        // Lower is better. Unused endpoints are free so that everything gets measured at least once,
+        // and so are ones that haven't been used in a while, so a preferred mirror is noticed once it recovers.
+        private synchronized double score(long now) {
+            if (Double.isNaN(this.latency) || now - this.updated > REMEASURE)
+                return 0;
+            return this.latency * (1 + ERROR_PENALTY * this.errors);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s (%.0fms, %.0f%% errors)", this.url, Double.isNaN(this.latency) ? 0 : this.latency, this.errors * 100);
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private final File cache;
+    private final Object writeLock = new Object();
+    private long written; // Guarded by writeLock
+
+    public DiscoProviders(List<String> urls) {
+        this(urls, null);
+    }
+
+    /**
+     * @param urls The endpoints in order of preference
+     * @param cache Directory to remember endpoint health in between runs, or null to not remember it
+     */
+    public DiscoProviders(List<String> urls, File cache) {
+        if (urls == null || urls.isEmpty())
+            throw new IllegalArgumentException("At least one provider is required");
+
+        List<Endpoint> endpoints = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            while (url.endsWith("/"))
+                url = url.substring(0, url.length() - 1);
+            endpoints.add(new Endpoint(url, endpoints.size()));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.cache = cache;
+
+        if (cache != null)
+            read();
+    }
+
+    /**
+     * Parses a comma separated list of endpoints, or returns the default public API if null or empty.
+     */
+    public static List<String> parse(String value) {
+        List<String> ret = new ArrayList<>();
+        if (value != null) {
+            for (String url : value.split(",")) {
+                url = url.trim();
+                if (!url.isEmpty())
+                    ret.add(url);
+            }
+        }
+        if (ret.isEmpty())
+            ret.add(Disco.DEFAULT_PROVIDER);
+        return ret;
+    }
+
+    /** The endpoints in the order they were given */
+    public List<Endpoint> endpoints() {
+        return this.endpoints;
+    }
+
+    /**
+     * The endpoints in the order they should be tried, best first. Endpoints that are cooling down are last.
+     */
+    public List<Endpoint> ranked() {
+        long now = System.currentTimeMillis();
+        List<Endpoint> ready = new ArrayList<>();
+        List<Endpoint> cooling = new ArrayList<>();
+        for (Endpoint endpoint : endpoints)
+            (endpoint.coolingDown(now) ? cooling : ready).add(endpoint);
+
+        List<Endpoint> ret = new ArrayList<>(endpoints.size());
+        if (!ready.isEmpty()) {
+            double[] scores = new double[endpoints.size()];
+            double best = Double.MAX_VALUE;
+            for (Endpoint endpoint : ready) {
+                scores[endpoint.order] = endpoint.score(now);
+                best = Math.min(best, scores[endpoint.order]);
+            }
+
+            // Close enough to the best keep their given order, the rest are sorted by how bad they are
+            List<Endpoint> slow = new ArrayList<>();
+            for (Endpoint endpoint : ready)
+                (scores[endpoint.order] <= best * TOLERANCE ? ret : slow).add(endpoint);
+            slow.sort(Comparator.comparingDouble(e -> scores[e.order]));
+            ret.addAll(slow);
+        }
+        ret.addAll(cooling);
+        return ret;
+    }
+
+    /**
+     * Records the outcome of a request to the specified endpoint.
+     *
+     * @param nanos How long the request took, including failed ones, so endpoints that time out are also slow
+     */
+    public void record(Endpoint endpoint, long nanos, boolean success) {
+        long now = System.currentTimeMillis();
+        boolean changed;
+        synchronized (endpoint) {
+            // Failures and recoveries change the cool down, worth saving straight away. The averages drifting can wait.
+            changed = Double.isNaN(endpoint.latency) || !success || endpoint.failures != 0;
+            double millis = nanos / 1_000_000.0;
+            endpoint.latency = Double.isNaN(endpoint.latency) ? millis : endpoint.latency + ALPHA * (millis - endpoint.latency);
+            endpoint.errors += ALPHA * ((success ? 0 : 1) - endpoint.errors);
+            endpoint.requests++;
+            endpoint.updated = now;
+            if (success) {
+                endpoint.failures = 0;
+            } else {
+                endpoint.failures++;
+                endpoint.failed = now;
+            }
+        }
+
+        if (cache != null)
+            write(now, changed);
+    }
+
+    private void read() {
+        File input = new File(cache, CACHE_FILE);
+        if (!input.exists())
+            return;
+
+        long now = System.currentTimeMillis();
+        try (Reader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            for (Endpoint endpoint : endpoints) {
+                JsonElement element = json.get(endpoint.url);
+                if (element == null || !element.isJsonObject())
+                    continue;
+
+                JsonObject stats = element.getAsJsonObject();
+                long updated = stats.get("updated").getAsLong();
+                if (updated < now - STATS_TIMEOUT)
+                    continue;
+
+                synchronized (endpoint) {
+                    endpoint.latency = stats.get("latency").getAsDouble();
+                    endpoint.errors = stats.get("errors").getAsDouble();
+                    endpoint.failures = stats.get("failures").getAsInt();
+                    endpoint.failed = stats.get("failed").getAsLong();
+                    endpoint.updated = updated;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or from an older version, everything starts out healthy again
+        }
+    }
+
+    /*
+     * Requests are recorded from every thread making them, including prefetch pools, so this only writes
+     * when an endpoint's health changed, or at most every few seconds otherwise.
+     */
+    private void write(long now, boolean changed) {
+        synchronized (writeLock) {
+            if (!changed && now - written < WRITE_INTERVAL)
+                return;
+            written = now;
+            write();
+        }
+    }
+
+    private void write() {
+        JsonObject json = new JsonObject();
+        for (Endpoint endpoint : endpoints) {
+            synchronized (endpoint) {
+                if (endpoint.updated == 0)
+                    continue;
+
+                JsonObject stats = new JsonObject();
+                stats.addProperty("latency", endpoint.latency);
+                stats.addProperty("errors", endpoint.errors);
+                stats.addProperty("failures", endpoint.failures);
+                stats.addProperty("failed", endpoint.failed);
+                stats.addProperty("updated", endpoint.updated);
+                json.add(endpoint.url, stats);
+            }
+        }
+
+        // Other endpoints another run knew about, still useful if that run's list is used again
+        File output = new File(cache, CACHE_FILE);
+        if (output.exists()) {
+            try (Reader reader = Files.newBufferedReader(output.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, JsonElement> entry : JsonParser.parseReader(reader).getAsJsonObject().entrySet()) {
+                    if (!json.has(entry.getKey()))
+                        json.add(entry.getKey(), entry.getValue());
+                }
+            } catch (IOException | RuntimeException e) {
+                // Replace it with just what we know
+            }
+        }
+
+        try {
+            FileUtils.writeAtomically(output, writer -> writer.write(json.toString()));
+        } catch (IOException e) {
+            // Only a hint for the next run, so it's fine if it can't be saved
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.endpoints.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Which parts of a JDK archive get extracted. Most of a JDK is sources, jmods, docs and demos that nothing
+ * we run ever touches, and skipping them saves tens of megabytes and thousands of files per install.
+ * <p>
+ * Patterns are matched against the path inside the java home, after any prefix such as {@code jdk-17.0.9+9/}
+ * is removed. {@code *} matches within a single directory, {@code **} matches across directories, and a
+ * trailing {@code /} matches the directory and everything in it. A file is extracted if it matches an include,
+ * or there are none, and doesn't match any exclude.
+ * <p>
+ * Profiles are ordered from fullest to smallest, each one containing everything the ones after it do.
+ */
+public enum ExtractionProfile {
+    /** Everything in the archive */
+    FULL(null, null),
+    /** Everything needed to run and compile, without sources, jmods, headers, docs or demos */
+    TOOLS(null, new String[] {
+        "src.zip", "lib/src.zip", "javafx-src.zip", "jmods/", "include/", "demo/", "sample/", "man/", "legal/",
+        "lib/missioncontrol/", "lib/visualvm/"
+    }),
+    /** Only what is needed to run java, no compiler or other tools */
+    MINIMAL(new String[] {
+        "release", "bin/java", "bin/javaw", "bin/java.exe", "bin/javaw.exe", "bin/*.dll", "bin/server/", "bin/client/",
+        "lib/", "conf/", "jre/"
+    }, new String[] {
+        "src.zip", "lib/src.zip", "javafx-src.zip", "jmods/", "include/", "demo/", "sample/", "man/", "legal/",
+        "lib/missioncontrol/", "lib/visualvm/", "lib/ct.sym", "lib/tools.jar", "lib/sa-jdi.jar", "lib/jconsole.jar",
+        "lib/dt.jar", "lib/*.idl"
+    });
+
+    private static final ExtractionProfile[] $values = values();
+    private static final Map<String, ExtractionProfile> BY_KEY = new HashMap<>();
+    static {
+        for (ExtractionProfile value : $values)
+            BY_KEY.put(value.key(), value);
+    }
+
+    private final String key;
+    private final Pattern include;
+    private final Pattern exclude;
+
+    private ExtractionProfile(String[] include, String[] exclude) {
+        this.key = name().toLowerCase(Locale.ENGLISH);
+        this.include = compile(include);
+        this.exclude = compile(exclude);
+    }
+
+    public String key() {
+        return this.key;
+    }
+
+    public static ExtractionProfile byKey(String key) {
+        return key == null ? null : BY_KEY.get(key.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @param path The path relative to the java home, using / as the separator
+     */
+    public boolean includes(String path) {
+        if (include != null && !include.matcher(path).matches())
+            return false;
+        return exclude == null || !exclude.matcher(path).matches();
+    }
+
+    /** If an install extracted with this profile has everything one extracted with the other would */
+    public boolean covers(ExtractionProfile other) {
+        return ordinal() <= other.ordinal();
+    }
+
+    private static Pattern compile(String[] globs) {
+        if (globs == null)
+            return null;
+
+        StringBuilder regex = new StringBuilder();
+        for (String glob : globs) {
+            if (regex.length() != 0)
+                regex.append('|');
+            regex.append("(?:");
+            for (int x = 0; x < glob.length(); x++) {
+                char c = glob.charAt(x);
+                if (c == '*') {
+                    if (x + 1 < glob.length() && glob.charAt(x + 1) == '*') {
+                        regex.append(".*");
+                        x++;
+                    } else
+                        regex.append("[^/]*");
+                } else if (c == '/' && x == glob.length() - 1)
+                    regex.append("/.*");
+                else if (Character.isLetterOrDigit(c) || c == '/' || c == '_' || c == '-')
+                    regex.append(c);
+                else
+                    regex.append('\\').append(c);
+            }
+            regex.append(')');
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
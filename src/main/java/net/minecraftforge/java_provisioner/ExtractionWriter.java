@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes the files of an archive being extracted. A JDK is tens of thousands of mostly small files, so the
+ * per file overhead matters more than the copying. One instance is used per extraction, and reuses everything
+ * it can between files:
+ * <ul>
+ *   <li>One large direct buffer for copying, instead of a small one per file</li>
+ *   <li>Directories it has already created, so each is only checked once</li>
+ *   <li>The 512 possible permission sets, built once and shared by every extraction</li>
+ * </ul>
+ * Files are created with their final permissions in one step, and files with a known size are preallocated.
+ * <p>
+ * Not thread safe. Stops with an {@link InterruptedIOException} if the thread is interrupted.
+ */
+final class ExtractionWriter {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // Below this the file is written in a single call anyway, so setting the length first is just another syscall
+    private static final long PREALLOCATE = BUFFER_SIZE;
+    private static final Set<PosixFilePermission>[] PERMISSIONS = permissions();
+
+    private final boolean posix;
+    private final ProgressTracker progress;
+    private final Set<File> created = new HashSet<>();
+    private final byte[] array = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    @SuppressWarnings("unchecked")
+    private final FileAttribute<Set<PosixFilePermission>>[] attributes = new FileAttribute[PERMISSIONS.length];
+
+    /**
+     * @param progress Receives bytes and entries written, or null
+     */
+    ExtractionWriter(File target, ProgressTracker progress) {
+        this.posix = Files.getFileAttributeView(target.toPath(), PosixFileAttributeView.class) != null;
+        this.progress = progress;
+        this.created.add(target);
+    }
+
+    /**
+     * Writes a single file, creating its parent directories if needed.
+     *
+     * @param size The size from the archive's header, or -1 if unknown
+     * @param mode The unix permission bits, ignored if the file system doesn't support them
+     * @return The number of bytes written
+     */
+    long write(File out, InputStream stream, long size, int mode) throws IOException {
+        mkdirs(out.getParentFile());
+
+        Path path = out.toPath();
+        long written = 0;
+        try (FileChannel channel = open(path, mode & 0b111_111_111)) {
+            if (size >= PREALLOCATE)
+                channel.write(ByteBuffer.allocate(1), size - 1); // Extends the file, without zeroing it ourselves
+
+            for (int len = stream.read(array); len != -1; len = stream.read(array)) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException("Extraction cancelled");
+
+                buffer.clear();
+                buffer.put(array, 0, len).flip();
+                while (buffer.hasRemaining())
+                    written += channel.write(buffer, written);
+
+                if (progress != null)
+                    progress.add(len);
+            }
+
+            // The header lied, or we were cut short, don't leave the preallocated tail behind
+            if (size >= PREALLOCATE && written != size)
+                channel.truncate(written);
+        }
+
+        if (progress != null)
+            progress.entry();
+        return written;
+    }
+
+    private FileChannel open(Path path, int mode) throws IOException {
+        if (!posix)
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        FileAttribute<Set<PosixFilePermission>> attribute = attribute(mode);
+        try {
+            return FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), attribute);
+        } catch (FileAlreadyExistsException e) {
+            // Left over from an earlier attempt, and may be read only, so replace it rather than write into it
+            Files.delete(path);
+            return FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), attribute);
+        }
+    }
+
+    private FileAttribute<Set<PosixFilePermission>> attribute(int mode) {
+        FileAttribute<Set<PosixFilePermission>> ret = attributes[mode];
+        if (ret == null)
+            ret = attributes[mode] = PosixFilePermissions.asFileAttribute(PERMISSIONS[mode]);
+        return ret;
+    }
+
+    private void mkdirs(File dir) throws IOException {
+        if (dir == null || !created.add(dir))
+            return;
+        Files.createDirectories(dir.toPath());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<PosixFilePermission>[] permissions() {
+        PosixFilePermission[] values = PosixFilePermission.values(); // Owner read first, others execute last
+        Set<PosixFilePermission>[] ret = new Set[1 << values.length];
+        for (int bits = 0; bits < ret.length; bits++) {
+            Set<PosixFilePermission> perms = EnumSet.noneOf(PosixFilePermission.class);
+            for (int x = 0; x < values.length; x++) {
+                if ((bits & (1 << (values.length - 1 - x))) != 0)
+                    perms.add(values[x]);
+            }
+            ret[bits] = Collections.unmodifiableSet(perms);
+        }
+        return ret;
+    }
+}
@@ -8,10 +8,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.ILocatorListener.Rejection;
+import net.minecraftforge.java_provisioner.api.ILocatorListener.Source;
 import net.minecraftforge.java_provisioner.util.OS;
 
 /*
@@ -35,6 +40,11 @@ public class GradleLocator extends JavaHomeLocator {
     private static final String MAC_JAVA_HOME_FOLDER = "Contents/Home";
     private static final Pattern GRADLE_ENV = Pattern.compile("JDK\\d\\d*");
 
+    // Gradle's jdks directory listing, and the marked homes in each directory under it. Each is only
+    // listed again once its timestamp changes, which it does when entries are added or removed.
+    private Scan listing;
+    private final Map<File, Scan> scans = new ConcurrentHashMap<>();
+
     @Override
     public File find(int version) {
         List<IJavaInstall> results = new ArrayList<>();
@@ -49,7 +59,7 @@ public class GradleLocator extends JavaHomeLocator {
         IJavaInstall result = fromEnv("JDK" + version);
         if (result != null) {
             if (result.majorVersion() != version)
-                log("  Wrong version: Was " + result.majorVersion() + " wanted " + version);
+                wrongVersion(result, version);
             else
                 return result.home();
         }
@@ -81,13 +91,14 @@ public class GradleLocator extends JavaHomeLocator {
     }
 
     @Override
-    public List<String> logOutput() {
-        return this.searched;
+    protected Collection<File> roots() {
+        return Collections.singletonList(new File(getGradleHome(), "jdks"));
     }
 
     private void fromGradleEnv(Collection<IJavaInstall> list, int version) {
         String prop = System.getProperty(GRADLE_FROMENV);
-        log("Property: " + GRADLE_FROMENV + " = " + prop);
+        if (listener != null)
+            listener.searching(Source.PROPERTY, GRADLE_FROMENV, prop);
         if (prop == null)
             return;
 
@@ -100,7 +111,7 @@ public class GradleLocator extends JavaHomeLocator {
             if (version == -1) {
                 list.add(ret);
             } else if (ret.majorVersion() != version) {
-                log("  Wrong version: Was " + ret.majorVersion() + " wanted " + version);
+                wrongVersion(ret, version);
             } else {
                 list.add(ret);
                 return;
@@ -110,7 +121,8 @@ public class GradleLocator extends JavaHomeLocator {
 
     private void fromPaths(Collection<IJavaInstall> list, int version) {
         String prop = System.getProperty(GRADLE_PATHS);
-        log("Property: " + GRADLE_PATHS + " = " + prop);
+        if (listener != null)
+            listener.searching(Source.PROPERTY, GRADLE_PATHS, prop);
         if (prop == null)
             return;
 
@@ -123,7 +135,7 @@ public class GradleLocator extends JavaHomeLocator {
             if (version == -1) {
                 list.add(ret);
             } else if (ret.majorVersion() != version) {
-                log("  Wrong version: Was " + ret.majorVersion() + " wanted " + version);
+                wrongVersion(ret, version);
             } else {
                 list.add(ret);
                 return;
@@ -152,38 +164,74 @@ public class GradleLocator extends JavaHomeLocator {
     private void fromGradleHome(Collection<IJavaInstall> list, int version) {
         File gradleHome = getGradleHome();
         if (!gradleHome.exists() || !gradleHome.isDirectory()) {
-            log("Gradle home: \"" + gradleHome.getAbsolutePath() + "\" Does not exist");
+            missing("Gradle home", gradleHome);
             return;
         }
         File jdks = new File(gradleHome, "jdks");
         if (!jdks.exists() || !jdks.isDirectory()) {
-            log("Gradle Home JDKs: \"" + jdks.getAbsolutePath() + "\" Does not exist");
+            missing("Gradle Home JDKs", jdks);
             return;
         }
 
-        for (File dir : jdks.listFiles()) {
-            if (!dir.isDirectory())
-                continue;
+        for (File home : scan(jdks)) {
+            if (listener != null)
+                listener.searching(Source.DIRECTORY, "Gradle Home JDK", home.getAbsolutePath());
+
+            // Gradle only marks installs it has finished extracting, and they don't change after that,
+            // so the release file is as good as a probe
+            IJavaInstall ret = fromRelease(home);
+            if (ret != null) {
+                if (version == -1) {
+                    list.add(ret);
+                } else if (ret.majorVersion() != version) {
+                    wrongVersion(ret, version);
+                } else {
+                    list.add(ret);
+                    return;
+                }
+            }
+        }
+    }
 
-            List<File> markers = findMarkers(dir);
-            for (File marked : markers) {
-                if (OS.CURRENT == OS.OSX)
-                    marked = findMacHome(dir);
-
-                log("Gradle Home JDK: \"" + marked.getAbsolutePath() + "\"");
-
-                IJavaInstall ret = fromPath(marked);
-                if (ret != null) {
-                    if (version == -1) {
-                        list.add(ret);
-                    } else if (ret.majorVersion() != version) {
-                        log("  Wrong version: Was " + ret.majorVersion() + " wanted " + version);
-                    } else {
-                        list.add(ret);
-                        return;
-                    }
+    private List<File> scan(File jdks) {
+        long stamp = jdks.lastModified();
+        Scan listing = this.listing;
+        if (listing == null || listing.stamp != stamp || !listing.dir.equals(jdks)) {
+            List<File> dirs = new ArrayList<>();
+            File[] children = jdks.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (child.isDirectory())
+                        dirs.add(child);
                 }
             }
+            listing = this.listing = new Scan(jdks, stamp, dirs);
+            scans.keySet().retainAll(dirs);
+        }
+
+        List<File> ret = new ArrayList<>();
+        for (File dir : listing.files) {
+            long dirStamp = dir.lastModified();
+            Scan scan = scans.get(dir);
+            if (scan == null || scan.stamp != dirStamp) {
+                List<File> homes = new ArrayList<>();
+                for (File marked : findMarkers(dir))
+                    homes.add(OS.CURRENT == OS.OSX ? findMacHome(marked) : marked);
+                scan = new Scan(dir, dirStamp, homes);
+                // Nothing marked could be Gradle still extracting, and a marker written in a child
+                // directory doesn't change this one's timestamp, so look again next time
+                if (!homes.isEmpty())
+                    scans.put(dir, scan);
+            }
+            ret.addAll(scan.files);
+        }
+        return ret;
+    }
+
+    private void missing(String name, File dir) {
+        if (listener != null) {
+            listener.searching(Source.DIRECTORY, name, dir.getAbsolutePath());
+            listener.candidateRejected(dir, Rejection.MISSING, null, -1);
         }
     }
 
@@ -196,7 +244,11 @@ public class GradleLocator extends JavaHomeLocator {
             new File(root, LEGACY_MARKER_FILE).exists())
             ret.add(root);
 
-        for (File child : root.listFiles()) {
+        File[] children = root.listFiles();
+        if (children == null)
+            return ret;
+
+        for (File child : children) {
             if (!child.isDirectory())
                 continue;
             if (new File(child, MARKER_FILE).exists() ||
@@ -213,7 +265,11 @@ public class GradleLocator extends JavaHomeLocator {
         if (tmp.exists())
             return tmp;
 
-        for (File child : root.listFiles()) {
+        File[] children = root.listFiles();
+        if (children == null)
+            return root;
+
+        for (File child : children) {
             if (!child.isDirectory())
                 continue;
 
@@ -224,4 +280,16 @@ public class GradleLocator extends JavaHomeLocator {
 
         return root;
     }
+
+    private static class Scan {
+        private final File dir;
+        private final long stamp;
+        private final List<File> files;
+
+        private Scan(File dir, long stamp, List<File> files) {
+            this.dir = dir;
+            this.stamp = stamp;
+            this.files = files;
+        }
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+import net.minecraftforge.java_provisioner.Disco.LibC;
+import net.minecraftforge.java_provisioner.util.FileUtils;
+import net.minecraftforge.java_provisioner.util.OS;
+
+/**
+ * Details about the machine we are running on that decide which packages can be used, but that
+ * can't be answered by system properties alone. Such as if this linux is Alpine, or uses musl.
+ * <p>
+ * Nothing is looked up until it is asked for, and nothing is spawned to find it. Linux hosts are
+ * identified by reading the ELF interpreter of {@code /bin/sh}, falling back to looking for a
+ * musl loader in {@code /lib}. When given a cache directory, the answer is saved there as
+ * {@code host.json} and reused for as long as the host's fingerprint matches.
+ */
+public final class Host {
+    private static final String CACHE_FILE = "host.json";
+    private static final File SHELL = new File("/bin/sh");
+    private static final File OS_RELEASE = new File("/etc/os-release");
+    private static final int PT_INTERP = 3;
+
+    private static final Host CURRENT = new Host(null);
+    private static volatile Host detected;
+
+    private final File cache;
+    private volatile OS os;
+    private volatile LibC libc;
+
+    private Host(File cache) {
+        this.cache = cache;
+    }
+
+    private Host(OS os, LibC libc) {
+        this.cache = null;
+        this.os = os;
+        this.libc = libc;
+    }
+
+    /** The current host, detected once per process */
+    public static Host current() {
+        return CURRENT;
+    }
+
+    /** The current host, using the specified directory to remember it between runs */
+    public static Host current(File cache) {
+        return cache == null ? CURRENT : new Host(cache);
+    }
+
+    public Arch arch() {
+        return Arch.CURRENT;
+    }
+
+    /**
+     * The operating system, refined past what {@link OS#CURRENT} can tell from {@code os.name}.
+     * Currently that is only telling apart Alpine from other linux distributions.
+     */
+    public OS os() {
+        resolve();
+        return os;
+    }
+
+    public LibC libc() {
+        resolve();
+        return libc;
+    }
+
+    private void resolve() {
+        if (libc != null)
+            return;
+
+        synchronized (this) {
+            if (libc != null)
+                return;
+
+            String fingerprint = fingerprint();
+            if (cache != null && read(fingerprint))
+                return;
+
+            Host host = detect();
+            this.os = host.os;
+            this.libc = host.libc;
+
+            if (cache != null)
+                write(fingerprint);
+        }
+    }
+
+    // Things that would change if the cache was moved to a different machine, or the OS was replaced. All cheap to get.
+    private static String fingerprint() {
+        return System.getProperty("os.name") + '|' + System.getProperty("os.version") + '|' + System.getProperty("os.arch")
+            + '|' + OS_RELEASE.lastModified() + '|' + SHELL.lastModified();
+    }
+
+    private boolean read(String fingerprint) {
+        File input = new File(cache, CACHE_FILE);
+        if (!input.exists())
+            return false;
+
+        try (Reader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (!json.has("fingerprint") || !fingerprint.equals(json.get("fingerprint").getAsString()))
+                return false;
+
+            OS os = OS.byKey(json.get("os").getAsString());
+            LibC libc = LibC.byKey(json.get("libc").getAsString());
+            if (os == null || libc == null)
+                return false;
+
+            this.os = os;
+            this.libc = libc;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void write(String fingerprint) {
+        JsonObject json = new JsonObject();
+        json.addProperty("fingerprint", fingerprint);
+        json.addProperty("os", os.key());
+        json.addProperty("arch", arch().key());
+        json.addProperty("libc", libc.key());
+
+        try {
+            FileUtils.writeAtomically(new File(cache, CACHE_FILE), writer -> writer.write(json.toString()));
+        } catch (IOException e) {
+            // Not being able to cache this is fine, we'll just detect it again next time
+        }
+    }
+
+    private static Host detect() {
+        Host ret = detected;
+        if (ret == null) {
+            synchronized (Host.class) {
+                ret = detected;
+                if (ret == null)
+                    ret = detected = detectInternal();
+            }
+        }
+        return ret;
+    }
+
+    private static Host detectInternal() {
+        if (OS.CURRENT != OS.LINUX)
+            return new Host(OS.CURRENT, OS.CURRENT == OS.MUSL ? LibC.MUSL : LibC.GLIBC);
+
+        OS os = isAlpine() ? OS.ALPINE : OS.LINUX;
+
+        String interp = interpreter(SHELL);
+        if (interp != null)
+            return new Host(os, interp.contains("musl") ? LibC.MUSL : LibC.GLIBC);
+
+        File[] loaders = new File("/lib").listFiles((dir, name) -> name.startsWith("ld-musl-"));
+        return new Host(os, loaders != null && loaders.length > 0 ? LibC.MUSL : LibC.GLIBC);
+    }
+
+    private static boolean isAlpine() {
+        if (!OS_RELEASE.exists())
+            return false;
+
+        try {
+            for (String line : Files.readAllLines(OS_RELEASE.toPath(), StandardCharsets.UTF_8)) {
+                line = line.toLowerCase(Locale.ENGLISH);
+                if (line.startsWith("name=") && line.contains("alpine"))
+                    return true;
+            }
+        } catch (IOException e) {
+            // Unreadable, so assume it's not special
+        }
+        return false;
+    }
+
+    /**
+     * Reads the program interpreter, the dynamic loader, that an ELF executable asks for.
+     * Such as {@code /lib64/ld-linux-x86-64.so.2} for glibc or {@code /lib/ld-musl-x86_64.so.1} for musl.
+     *
+     * @return Null if the file can't be read, is not an ELF file, or is statically linked
+     */
+    static String interpreter(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] ident = new byte[16];
+            raf.readFully(ident);
+            if (ident[0] != 0x7F || ident[1] != 'E' || ident[2] != 'L' || ident[3] != 'F')
+                return null;
+
+            boolean is64 = ident[4] == 2;
+            ByteOrder order = ident[5] == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+            ByteBuffer header = read(raf, 0, is64 ? 64 : 52, order);
+            long phoff  = is64 ? header.getLong(0x20) : header.getInt(0x1C) & 0xFFFFFFFFL;
+            int phentsize = header.getShort(is64 ? 0x36 : 0x2A) & 0xFFFF;
+            int phnum     = header.getShort(is64 ? 0x38 : 0x2C) & 0xFFFF;
+            if (phnum > 256 || phentsize < (is64 ? 56 : 32))
+                return null;
+
+            ByteBuffer headers = read(raf, phoff, phentsize * phnum, order);
+            for (int x = 0; x < phnum; x++) {
+                int base = x * phentsize;
+                if (headers.getInt(base) != PT_INTERP)
+                    continue;
+
+                long offset = is64 ? headers.getLong(base + 0x08) : headers.getInt(base + 0x04) & 0xFFFFFFFFL;
+                long size   = is64 ? headers.getLong(base + 0x20) : headers.getInt(base + 0x10) & 0xFFFFFFFFL;
+                if (size <= 0 || size > 4096)
+                    return null;
+
+                ByteBuffer data = read(raf, offset, (int)size, order);
+                int len = (int)size;
+                while (len > 0 && data.get(len - 1) == 0)
+                    len--;
+                return new String(data.array(), 0, len, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            // Missing or unreadable, treat it like we couldn't tell
+        }
+        return null;
+    }
+
+    private static ByteBuffer read(RandomAccessFile raf, long offset, int length, ByteOrder order) throws IOException {
+        byte[] data = new byte[length];
+        raf.seek(offset);
+        raf.readFully(data);
+        return ByteBuffer.wrap(data).order(order);
+    }
+}
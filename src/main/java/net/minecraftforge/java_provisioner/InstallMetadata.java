@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import net.minecraftforge.java_provisioner.util.FileUtils;
+
+/**
+ * What we know about an install we extracted, stored in the install itself so it travels with it, such as
+ * through a {@link CacheBundle}. Installs extracted before this existed have no file, and are everything in
+ * the archive.
+ */
+final class InstallMetadata {
+    static final String FILENAME = ".provisioned.json";
+    /** What a {@link State#PARTIAL} install is guaranteed to have, everything needed to run and compile */
+    static final ExtractionProfile CRITICAL = ExtractionProfile.TOOLS;
+
+    /** The disco package id, or null if unknown */
+    String id;
+    /** The archive this was extracted from */
+    String filename;
+    /** What was extracted, null if written by a newer version with a profile we don't know */
+    ExtractionProfile profile;
+    State state = State.COMPLETE;
+    /** What happened when we tried to give this install a CDS archive, null if we haven't */
+    Cds cds;
+    /** For jlink images, the java home they were linked from */
+    String source;
+    /** For jlink images, the modules they were asked to contain */
+    List<String> modules;
+    long time;
+
+    enum State {
+        /** Being extracted, or was interrupted, nothing can be relied on */
+        EXTRACTING,
+        /** Has everything in {@link InstallMetadata#CRITICAL}, the rest of the profile is still being extracted, or was interrupted */
+        PARTIAL,
+        COMPLETE;
+
+        String key() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+
+        static State byKey(String key) {
+            // Anything we don't know is treated as unfinished, so it gets extracted again
+            for (State state : values()) {
+                if (state.key().equals(key))
+                    return state;
+            }
+            return EXTRACTING;
+        }
+    }
+
+    enum Cds {
+        /** The JDK came with one */
+        SHIPPED,
+        /** We ran -Xshare:dump */
+        GENERATED,
+        /** -Xshare:dump didn't produce an archive, so don't try again */
+        FAILED,
+        /** The JVM doesn't support it, or wouldn't use it, such as OpenJ9 which shares classes its own way, or Java 8 */
+        UNSUPPORTED;
+
+        String key() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+
+        static Cds byKey(String key) {
+            for (Cds cds : values()) {
+                if (cds.key().equals(key))
+                    return cds;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return The metadata in the specified java home, or null if there is none or it can't be read
+     */
+    static InstallMetadata read(File home) {
+        File file = new File(home, FILENAME);
+        if (!file.exists())
+            return null;
+
+        try (FileReader reader = new FileReader(file)) {
+            return DiscoAdapters.INSTALL_METADATA.read(new JsonReader(reader));
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The profile of the install in the specified java home. A partial install is {@link #CRITICAL} no matter what
+     * it will be once finished.
+     *
+     * @return The profile, or null if it is still being extracted and can't be used
+     */
+    static ExtractionProfile profile(File home) {
+        File file = new File(home, FILENAME);
+        if (!file.exists())
+            return ExtractionProfile.FULL;
+
+        InstallMetadata data = read(home);
+        if (data != null && data.state == State.EXTRACTING)
+            return null;
+        // Something we don't understand, so assume the least, worst case we extract files it already has
+        if (data == null || data.profile == null)
+            return ExtractionProfile.MINIMAL;
+        if (data.state == State.PARTIAL && !CRITICAL.covers(data.profile))
+            return CRITICAL;
+        return data.profile;
+    }
+
+    /** If the install in the specified java home has everything its profile should */
+    static boolean isComplete(File home) {
+        File file = new File(home, FILENAME);
+        if (!file.exists())
+            return true;
+
+        InstallMetadata data = read(home);
+        return data != null && data.state == State.COMPLETE;
+    }
+
+    /** Safe against other processes writing the same install's metadata, the last one to finish wins */
+    void write(File home) throws IOException {
+        FileUtils.writeAtomically(new File(home, FILENAME), writer -> DiscoAdapters.INSTALL_METADATA.write(new JsonWriter(writer), this));
+    }
+}
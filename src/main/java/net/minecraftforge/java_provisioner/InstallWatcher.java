@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.IJavaLocator;
+import net.minecraftforge.java_provisioner.util.OS;
+
+/**
+ * Watches the directories that locators scan, so that long lived processes can be told when
+ * installs appear or disappear without calling {@link IJavaLocator#findAll()} and re-probing everything.
+ * <p>
+ * Only the immediate children of each root are watched. When one changes, the homes under it are
+ * invalidated in the owning locator and re-probed. Directories that show up without a java executable, or
+ * with one that doesn't probe yet, are assumed to still be being extracted, and are re-checked for a short
+ * while. Installs whose metadata says they are still being extracted are re-checked until they finish.
+ * <p>
+ * Listeners are called from the watcher thread.
+ */
+public class InstallWatcher implements Closeable {
+    private static final long POLL = 1000;
+    private static final long PENDING_TIMEOUT = 1000 * 60; // 1 minute
+
+    public interface Listener {
+        void added(IJavaInstall install);
+        void removed(File home);
+    }
+
+    private final Listener listener;
+    private final Map<Path, JavaHomeLocator> roots = new LinkedHashMap<>();
+    private final Map<Path, WatchKey> registered = new HashMap<>();
+    // Child of a root -> homes found under it, with the java executable's timestamp
+    private final Map<Path, Map<File, Long>> known = new HashMap<>();
+    // Children that exist but had no homes yet -> when to give up on them
+    private final Map<Path, Long> pending = new HashMap<>();
+    private WatchService service;
+    private Thread thread;
+
+    public InstallWatcher(Listener listener, IJavaLocator... locators) {
+        this.listener = listener;
+        for (IJavaLocator locator : locators) {
+            if (!(locator instanceof JavaHomeLocator))
+                continue;
+            JavaHomeLocator home = (JavaHomeLocator)locator;
+            for (File root : home.roots())
+                this.roots.put(root.getAbsoluteFile().toPath(), home);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the current state of all roots, and starts watching them for changes.
+     * Installs already present are not reported as added.
+     */
+    public synchronized void start() throws IOException {
+        if (this.thread != null)
+            return;
+
+        this.service = FileSystems.getDefault().newWatchService();
+        for (Path root : this.roots.keySet()) {
+            register(root);
+            for (Path child : children(root))
+                this.known.put(child, homes(child));
+        }
+
+        this.thread = new Thread(this::run, "InstallWatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.thread == null)
+            return;
+        this.thread.interrupt();
+        this.service.close();
+        this.thread = null;
+    }
+
+    private void register(Path root) {
+        if (this.registered.containsKey(root) || !root.toFile().isDirectory())
+            return;
+
+        try {
+            WatchKey key = root.register(this.service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            this.registered.put(root, key);
+        } catch (IOException e) {
+            // Root may have been deleted between the check and now, we'll retry next poll
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = this.service.poll(POLL, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            // Roots that didn't exist when we started, such as a fresh disco cache
+            for (Path root : this.roots.keySet()) {
+                if (!this.registered.containsKey(root) && root.toFile().isDirectory()) {
+                    register(root);
+                    for (Path child : children(root))
+                        update(root, child);
+                }
+            }
+
+            if (key != null) {
+                Path root = (Path)key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        for (Path child : children(root))
+                            update(root, child);
+                        for (Path child : new ArrayList<>(this.known.keySet())) {
+                            if (child.getParent().equals(root))
+                                update(root, child);
+                        }
+                    } else {
+                        update(root, root.resolve((Path)event.context()));
+                    }
+                }
+
+                if (!key.reset())
+                    this.registered.remove(root);
+            }
+
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Path, Long> entry : new ArrayList<>(this.pending.entrySet())) {
+                if (entry.getValue() < now)
+                    this.pending.remove(entry.getKey());
+                else
+                    update(entry.getKey().getParent(), entry.getKey());
+            }
+        }
+    }
+
+    private void update(Path root, Path child) {
+        JavaHomeLocator locator = this.roots.get(root);
+        if (locator == null)
+            return;
+
+        Map<File, Long> previous = this.known.get(child);
+        if (previous == null)
+            previous = Collections.emptyMap();
+        Map<File, Long> current = homes(child);
+
+        for (File home : previous.keySet()) {
+            if (!current.containsKey(home)) {
+                locator.invalidate(home);
+                this.listener.removed(home);
+            }
+        }
+
+        // Disco writes bin/java long before the rest, and later writes land in nested directories that don't
+        // fire events here, so anything unfinished stays pending and out of known until it probes successfully
+        Map<File, Long> finished = new HashMap<>();
+        boolean extracting = false;
+        boolean unfinished = false;
+        for (Map.Entry<File, Long> entry : current.entrySet()) {
+            File home = entry.getKey();
+            Long old = previous.get(home);
+            if (old != null && old.equals(entry.getValue())) {
+                finished.put(home, entry.getValue());
+                continue;
+            }
+
+            if (InstallMetadata.profile(home) == null || !InstallMetadata.isComplete(home)) {
+                extracting = unfinished = true;
+                continue;
+            }
+
+            locator.invalidate(home);
+            IJavaInstall install = locator.fromPath(home);
+            if (install == null) {
+                unfinished = true;
+                continue;
+            }
+            finished.put(home, entry.getValue());
+            this.listener.added(install);
+        }
+
+        if (finished.isEmpty())
+            this.known.remove(child);
+        else
+            this.known.put(child, finished);
+
+        if (unfinished || (current.isEmpty() && child.toFile().isDirectory())) {
+            // Still being written by something we know about, so give it as long as it needs
+            if (extracting || !this.pending.containsKey(child))
+                this.pending.put(child, System.currentTimeMillis() + PENDING_TIMEOUT);
+        } else {
+            this.pending.remove(child);
+        }
+    }
+
+    private static List<Path> children(Path root) {
+        File[] files = root.toFile().listFiles();
+        if (files == null)
+            return Collections.emptyList();
+
+        List<Path> ret = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.isDirectory())
+                ret.add(file.toPath());
+        }
+        return ret;
+    }
+
+    // Finds the homes that live in this child, matching the layouts that the locators understand.
+    // The child itself, a single level below it (Gradle's untrimmed archives), or a mac Contents/Home.
+    private static Map<File, Long> homes(Path child) {
+        Map<File, Long> ret = new HashMap<>();
+        File dir = child.toFile();
+        if (!addHome(ret, dir)) {
+            addHome(ret, new File(dir, "Contents/Home"));
+            File[] subs = dir.listFiles();
+            if (subs != null) {
+                for (File sub : subs) {
+                    if (sub.isDirectory() && !addHome(ret, sub))
+                        addHome(ret, new File(sub, "Contents/Home"));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static boolean addHome(Map<File, Long> homes, File dir) {
+        long stamp = new File(dir, "bin/java" + OS.CURRENT.exe()).lastModified();
+        if (stamp == 0)
+            return false;
+        homes.put(dir, stamp);
+        return true;
+    }
+}
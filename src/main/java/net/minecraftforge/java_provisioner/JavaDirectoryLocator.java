@@ -5,21 +5,51 @@
 package net.minecraftforge.java_provisioner;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.minecraftforge.java_provisioner.Disco.Arch;
 import net.minecraftforge.java_provisioner.api.IJavaInstall;
 import net.minecraftforge.java_provisioner.util.OS;
-import net.minecraftforge.java_provisioner.util.ProcessUtils;
 
 /*
  * Attempts to find the java install from specific folders.
- * Will search the folder, and immediate sub-folders.
+ * Will search the folder, and its sub-folders up to a configurable depth.
+ * Nothing is touched until the first lookup.
  */
 public class JavaDirectoryLocator extends JavaHomeLocator {
-    private final Collection<File> paths;
+    /** Deep enough for layouts like /opt/java/vendor/version and mac's Name.jdk/Contents/Home */
+    public static final int DEFAULT_DEPTH = 3;
+    private static final int THREADS = 8;
+    // Directories that are never a java home or lead to one, most of /usr/local and /opt is these
+    private static final Set<String> PRUNE = new HashSet<>(Arrays.asList(
+        "bin", "sbin", "include", "share", "man", "doc", "docs", "src", "etc", "var", "log", "logs", "cache", "tmp",
+        "node_modules", "site-packages", "legal", "jmods", "conf", "demo", "sample"
+    ));
+
+    private final Collection<File> explicit;
+    private volatile Collection<File> roots;
+    private volatile Collection<File> paths;
+    private volatile int depth = DEFAULT_DEPTH;
 
     private static Collection<File> guesses() {
         Collection<File> ret = new ArrayList<>();
@@ -39,46 +69,185 @@ public class JavaDirectoryLocator extends JavaHomeLocator {
             ret.add(new File("/usr/local/"));
             ret.add(new File("/opt"));
             ret.add(new File("/app/jdk"));
-            ret.add(new File("/opt/jdk"));
-            ret.add(new File("/opt/jdks"));
         }
 
-        ret.removeIf(f -> !f.exists() || !f.isDirectory());
+        ret.removeIf(f -> !f.isDirectory());
 
         return ret;
     }
 
 
     public JavaDirectoryLocator() {
-        this(guesses());
+        this.explicit = null;
     }
 
     public JavaDirectoryLocator(Collection<File> paths) {
-        this.paths = expand(paths);
+        this.explicit = paths;
     }
 
-    private Collection<File> expand(Collection<File> files) {
-        Collection<File> ret = new ArrayList<>();
-        String exe = "bin/java" + OS.CURRENT.exe();
-        for (File file : files) {
-            if (new File(file, exe).exists())
-                ret.add(file);
-            else {
-                File[] subFiles = file.listFiles();
-                if (subFiles != null) {
-                    for (File subFile : subFiles) {
-                        if (subFile.isDirectory() && new File(subFile, exe).exists())
-                            ret.add(subFile);
+    public JavaDirectoryLocator(Collection<File> paths, int depth) {
+        this(paths);
+        setDepth(depth);
+    }
+
+    /**
+     * Sets how many directories below each root are searched, 0 only checks the roots themselves.
+     * Directories that are java homes aren't searched any further.
+     */
+    public void setDepth(int depth) {
+        if (depth < 0)
+            throw new IllegalArgumentException("Depth must not be negative: " + depth);
+        this.depth = depth;
+        this.paths = null;
+    }
+
+    @Override
+    protected Collection<File> roots() {
+        Collection<File> ret = this.roots;
+        if (ret == null)
+            ret = this.roots = this.explicit != null ? this.explicit : guesses();
+        return ret;
+    }
+
+    @Override
+    protected void invalidate(File home) {
+        super.invalidate(home);
+        // Something under our roots changed, so the homes we found may be stale, look again next time
+        this.paths = null;
+    }
+
+    private Collection<File> paths() {
+        Collection<File> ret = this.paths;
+        if (ret == null) {
+            synchronized (this) {
+                ret = this.paths;
+                if (ret == null) {
+                    ret = discover(roots(), this.depth);
+                    // Interrupted, so this lookup finds nothing, but the next one tries again
+                    if (ret == null)
+                        return new ArrayList<>();
+                    this.paths = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /*
+     * Every root and each of their children is walked on its own thread, since on a large or networked
+     * tree nearly all the time is spent waiting on directory reads and stats. The results are kept in
+     * the order of the roots, so lookups prefer the same homes every time. Returns null if interrupted.
+     */
+    private static Collection<File> discover(Collection<File> roots, int depth) {
+        List<Path> starts = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        for (File root : roots) {
+            Path path = root.toPath();
+            if (depth == 0 || isHome(path)) {
+                starts.add(path);
+                depths.add(0);
+                continue;
+            }
+
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path, Files::isDirectory)) {
+                for (Path child : children) {
+                    if (!isPruned(child)) {
+                        starts.add(child);
+                        depths.add(depth - 1);
                     }
                 }
+            } catch (IOException e) {
+                // Missing or unreadable, nothing to find
+            }
+        }
+
+        if (starts.isEmpty())
+            return new ArrayList<>();
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(starts.size(), THREADS), r -> {
+            Thread ret = new Thread(r, "JavaDirectoryLocator-" + count.incrementAndGet());
+            ret.setDaemon(true);
+            return ret;
+        });
+        try {
+            List<Future<List<File>>> futures = new ArrayList<>(starts.size());
+            for (int x = 0; x < starts.size(); x++) {
+                Path start = starts.get(x);
+                int remaining = depths.get(x);
+                futures.add(pool.submit(() -> walk(start, remaining)));
             }
+
+            List<File> ret = new ArrayList<>();
+            for (Future<List<File>> future : futures)
+                ret.addAll(future.get());
+            return ret;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to search for java installs", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
+    }
+
+    private static List<File> walk(Path start, int depth) throws IOException {
+        List<File> ret = new ArrayList<>();
+        if (isHome(start)) {
+            ret.add(start.toFile());
+            return ret;
+        }
+        if (depth == 0)
+            return ret;
+
+        // Links are followed, /usr/lib/jvm is mostly links to the real homes. Loops end up in visitFileFailed.
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), depth, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(start))
+                    return FileVisitResult.CONTINUE;
+                if (isPruned(dir))
+                    return FileVisitResult.SKIP_SUBTREE;
+                // Nothing inside a java home is another one
+                if (isHome(dir)) {
+                    ret.add(dir.toFile());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // Directories at the depth limit are visited as files, using the attributes read with the listing
+                if (attrs.isDirectory() && !isPruned(file) && isHome(file))
+                    ret.add(file.toFile());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
         return ret;
     }
 
+    private static boolean isHome(Path dir) {
+        return Files.isRegularFile(dir.resolve("bin/java" + OS.CURRENT.exe()));
+    }
+
+    private static boolean isPruned(Path dir) {
+        Path name = dir.getFileName();
+        if (name == null)
+            return false;
+        String str = name.toString();
+        return str.startsWith(".") || PRUNE.contains(str.toLowerCase(Locale.ENGLISH));
+    }
+
     @Override
     public File find(int version) {
-        for (File path : paths) {
+        for (File path : paths()) {
             IJavaInstall result = fromPath(path);
             if (result != null && result.majorVersion() == version)
                 return result.home();
@@ -89,7 +258,7 @@ public class JavaDirectoryLocator extends JavaHomeLocator {
     @Override
     public List<IJavaInstall> findAll() {
         List<IJavaInstall> ret = new ArrayList<>();
-        for (File path : paths) {
+        for (File path : paths()) {
             IJavaInstall result = fromPath(path);
             if (result != null)
                 ret.add(result);
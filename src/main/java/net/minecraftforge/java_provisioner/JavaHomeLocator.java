@@ -6,12 +6,21 @@ package net.minecraftforge.java_provisioner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minecraftforge.java_provisioner.api.IJavaInstall;
 import net.minecraftforge.java_provisioner.api.IJavaLocator;
+import net.minecraftforge.java_provisioner.api.ILocatorListener;
+import net.minecraftforge.java_provisioner.api.ILocatorListener.Rejection;
+import net.minecraftforge.java_provisioner.api.ILocatorListener.Source;
 import net.minecraftforge.java_provisioner.util.OS;
 import net.minecraftforge.java_provisioner.util.ProcessUtils;
+import net.minecraftforge.java_provisioner.util.ReleaseFile;
 
 /*
  * Attempts to find the java install using the JAVA_HOME environment variable.
@@ -29,7 +38,10 @@ import net.minecraftforge.java_provisioner.util.ProcessUtils;
  *   architecture for legacy reasons. It just makes life easier.
  */
 public class JavaHomeLocator implements IJavaLocator {
-    protected List<String> searched = new ArrayList<>();
+    protected ILocatorListener listener = new LogBuffer();
+    // Probe results keyed by home, only reused while the java executable's timestamp is unchanged
+    private final Map<File, Probe> probes = new ConcurrentHashMap<>();
+    protected Metrics metrics;
 
     @Override
     public File find(int version) {
@@ -41,7 +53,7 @@ public class JavaHomeLocator implements IJavaLocator {
         if (result == null) {
             result = fromEnv("JAVA_HOME");
             if (result != null && result.majorVersion() != version) {
-                log("  Wrong version: Was " + result.majorVersion() + " wanted " + version);
+                wrongVersion(result, version);
                 result = null;
             }
         }
@@ -50,35 +62,82 @@ public class JavaHomeLocator implements IJavaLocator {
 
     @Override
     public List<IJavaInstall> findAll() {
-        List<IJavaInstall> ret = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
         for (String key : System.getenv().keySet()) {
-            if (key.startsWith("JAVA_HOME")) {
-                IJavaInstall tmp = fromEnv(key);
-                if (tmp != null)
-                    ret.add(tmp);
-            }
+            if (key.startsWith("JAVA_HOME"))
+                keys.add(key);
+        }
+        // Same preference as find, so callers picking the first match of a version get the same install
+        keys.sort(Comparator.comparingInt(JavaHomeLocator::envRank).thenComparing(Comparator.naturalOrder()));
+
+        List<IJavaInstall> ret = new ArrayList<>();
+        for (String key : keys) {
+            IJavaInstall tmp = fromEnv(key);
+            if (tmp != null)
+                ret.add(tmp);
         }
         return ret;
     }
 
+    private static int envRank(String key) {
+        if (key.endsWith("_X64"))
+            return 0;
+        if (key.endsWith("_arm64"))
+            return 1;
+        return key.equals("JAVA_HOME") ? 3 : 2;
+    }
+
     @Override
     public List<String> logOutput() {
-        return this.searched;
+        ILocatorListener listener = this.listener;
+        return listener instanceof LogBuffer ? ((LogBuffer)listener).lines() : Collections.emptyList();
+    }
+
+    @Override
+    public void setListener(ILocatorListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the directories this locator scans for java homes, each either a home itself
+     * or the parent of homes. Used by {@link InstallWatcher} to know what to watch.
+     */
+    protected Collection<File> roots() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Forgets any cached probe result for the specified home, so the next lookup re-probes it.
+     */
+    protected void invalidate(File home) {
+        probes.remove(home);
+    }
+
+    /**
+     * Shorthand for the common case of finding a valid install that isn't the version that was asked for.
+     */
+    protected void wrongVersion(IJavaInstall install, int wanted) {
+        if (listener != null)
+            listener.candidateRejected(install.home(), Rejection.WRONG_VERSION, install, wanted);
     }
 
     protected void log(String line) {
-        searched.add(line);
+        if (listener != null)
+            listener.message(ILocatorListener.Level.DEBUG, line);
     }
 
     protected IJavaInstall fromEnv(String name) {
         String env = System.getenv(name);
-        if (env == null) {
-            log("Environment: \"" + name + "\" Empty");
+        if (listener != null)
+            listener.searching(Source.ENVIRONMENT, name, env);
+        if (env == null)
             return null;
-        }
 
-        log("Environment: \"" + name + "\"");
-        log("  Value: \"" + env + "\"");
         return fromPath(env);
     }
 
@@ -89,18 +148,59 @@ public class JavaHomeLocator implements IJavaLocator {
     protected IJavaInstall fromPath(File path) {
         File exe = new File(path, "bin/java" + OS.CURRENT.exe());
 
-        if (!exe.exists()) {
-            log("  Missing Executable");
+        long stamp = exe.lastModified();
+        if (stamp == 0) {
+            if (listener != null)
+                listener.candidateRejected(path, Rejection.MISSING_EXECUTABLE, null, -1);
             return null;
         }
 
+        Probe cached = probes.get(path);
+        if (cached != null && cached.stamp == stamp) {
+            if (metrics != null)
+                metrics.hit(Metrics.Phase.PROBE);
+            return cached.install;
+        }
+
+        if (listener != null)
+            listener.probeStarted(path);
+        long start = System.nanoTime();
         ProcessUtils.ProbeResult result = ProcessUtils.testJdk(path);
-        if (result.exitCode != 0) {
-            log("  Exit code: " + result.exitCode);
-            for (String line : result.lines)
-                searched.add("  " + line);
+        if (metrics != null) {
+            metrics.miss(Metrics.Phase.PROBE);
+            metrics.time(Metrics.Phase.PROBE, start);
         }
+        if (listener != null)
+            listener.probeFinished(path, result.meta, result.exitCode, result.exitCode == 0 ? null : result.lines);
+        if (result.exitCode == 0 && result.meta != null)
+            probes.put(path, new Probe(stamp, result.meta));
 
         return result.meta;
     }
+
+    /**
+     * Like {@link #fromPath(File)}, but answers from the home's release file when it has one, which is much cheaper
+     * than starting a JVM to probe it. Falls back to probing if the release file doesn't say enough.
+     */
+    protected IJavaInstall fromRelease(File path) {
+        ReleaseFile release = ReleaseFile.read(path);
+        IJavaInstall ret = release == null ? null : release.toInstall();
+        if (ret == null)
+            return fromPath(path);
+
+        // Not probed at all, but it is a probe we didn't have to run
+        if (metrics != null)
+            metrics.hit(Metrics.Phase.PROBE);
+        return ret;
+    }
+
+    private static class Probe {
+        private final long stamp;
+        private final IJavaInstall install;
+
+        private Probe(long stamp, IJavaInstall install) {
+            this.stamp = stamp;
+            this.install = install;
+        }
+    }
 }
@@ -4,9 +4,18 @@
  */
 package net.minecraftforge.java_provisioner;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A parsed java version string, following <a href="https://openjdk.org/jeps/223">JEP 223</a> with
+ * allowances for the legacy {@code 1.8.0_392} style.
+ * <p>
+ * Natural ordering is newest first. Versions made of at most four small numbers and an optional
+ * build number, which is nearly all of them, are packed into a single long so comparing them is
+ * one primitive compare. Anything else falls back to comparing each segment.
+ */
 public final class JavaVersion implements Comparable<JavaVersion> {
     private enum Segment {
         VNUM,  // [1-9][0-9]*((\.0)*\.[1-9][0-9]*)*
@@ -22,12 +31,22 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         }
     }
 
+    // Version strings come from a small set of installs and the disco catalog, so they repeat a lot
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<String, JavaVersion> CACHE = new ConcurrentHashMap<>();
+
+    // Packed key layout, from the high bits down: four 12 bit vnum components, 3 bit vnum length, 12 bit build + 1
+    private static final int PACKED_COMPONENTS = 4;
+    private static final int PACKED_MAX = 0xFFF;
+    private static final long UNPACKED = -1;
+
     private final String str;
     private final int[]  vnum;
     private final String pre;
     private final int    preI;
     private final int    build;
     private final String opt;
+    private final long   key;
 
     private JavaVersion(String str, int[] vnum, String pre, int build, String opt) {
         this.str = str;
@@ -36,6 +55,7 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         this.preI = toInt(pre);
         this.build = build;
         this.opt = opt;
+        this.key = pack(vnum, pre, build, opt);
     }
 
     public int major() {
@@ -46,18 +66,33 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         return vnum[1];
     }
 
+    private static long pack(int[] vnum, String pre, int build, String opt) {
+        if (pre != null || opt != null || vnum.length > PACKED_COMPONENTS || build >= PACKED_MAX)
+            return UNPACKED;
+
+        long ret = 0;
+        for (int x = 0; x < PACKED_COMPONENTS; x++) {
+            int val = x < vnum.length ? vnum[x] : 0;
+            if (val > PACKED_MAX)
+                return UNPACKED;
+            ret = (ret << 12) | val;
+        }
+        ret = (ret << 3) | vnum.length;
+        ret = (ret << 12) | (build + 1); // Missing build is -1, which sorts after any real build
+        return ret;
+    }
+
+    // Returns the numeric value of a pre-release identifier, or -1 if it is not a number
     private static int toInt(String s) {
-        if (s == null)
-            return 0;
+        if (s == null || s.isEmpty() || s.length() > 9)
+            return -1;
 
         int val = 0;
-        for (char c : s.toCharArray()) {
-            if ('0' <= c && c <= '0') {
-                val *= 10;
-                val += 10;
-            } else {
+        for (int x = 0; x < s.length(); x++) {
+            char c = s.charAt(x);
+            if (c < '0' || c > '9')
                 return -1;
-            }
+            val = val * 10 + (c - '0');
         }
         return val;
     }
@@ -74,15 +109,38 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         if (s == null)
             throw new NullPointerException("Invalid JavaVersion: null");
 
-        List<Integer> lvnum = new ArrayList<Integer>();
+        JavaVersion ret = CACHE.get(s);
+        if (ret == null) {
+            ret = parse((CharSequence)s);
+            if (CACHE.size() < CACHE_SIZE)
+                CACHE.put(s, ret);
+        }
+        return ret;
+    }
+
+    public static JavaVersion parse(CharSequence s) {
+        if (s == null)
+            throw new NullPointerException("Invalid JavaVersion: null");
+
+        int len = s.length();
+
+        // Size the vnum array up front, so we don't need to box into a list
+        int count = 1;
+        for (int x = 0; x < len; x++) {
+            char c = s.charAt(x);
+            if (c == '.') count++;
+            else if (c == '-' || c == '+' || c == '_') break;
+        }
+
+        int[] vnum = new int[count];
+        int vcount = 0;
         String pre = null;
         int build = -1;
         String opt = null;
 
         Segment seg = Segment.VNUM;
-        char[] chrs = s.toCharArray();
-        for (int x = 0; x < chrs.length; x++) {
-            char c = chrs[x];
+        for (int x = 0; x < len; x++) {
+            char c = s.charAt(x);
             if (seg == Segment.VNUM || seg == Segment.BUILD) {
                 // Make a number until the next non-digit
                 int start = x;
@@ -90,16 +148,16 @@ public final class JavaVersion implements Comparable<JavaVersion> {
                 while (seg.valid(c)) {
                     val *= 10;
                     val += c - '0';
-                    if (++x == chrs.length) break;
-                    c = chrs[x];
+                    if (++x == len) break;
+                    c = s.charAt(x);
                 }
 
                 if (seg == Segment.VNUM)
-                    lvnum.add(val);
+                    vnum[vcount++] = val;
                 else if (start != x)
                     build = val;
 
-                if (x == chrs.length) break;
+                if (x == len) break;
                 if (seg == Segment.VNUM) {
                     if (c == '.') seg = Segment.VNUM;
                     else if (c == '-') seg = Segment.PRE;
@@ -112,26 +170,27 @@ public final class JavaVersion implements Comparable<JavaVersion> {
             } else if (seg == Segment.PRE || seg == Segment.OPT) {
                 int start = x;
                 while (seg.valid(c)) {
-                    if (++x == chrs.length) break;
-                    c = chrs[x];
+                    if (++x == len) break;
+                    c = s.charAt(x);
                 }
 
-                String val = new String(chrs, start, x - start);
+                String val = s.subSequence(start, x).toString();
                 if (seg == Segment.PRE)
                     pre = val;
                 else
                     opt = val;
 
-                if (x == chrs.length) break;
-                else if (seg == Segment.PRE && c == '-') seg = Segment.BUILD;
+                if (x == len) break;
+                else if (seg == Segment.PRE && c == '+') seg = Segment.BUILD;
+                else if (seg == Segment.PRE && c == '-') seg = Segment.OPT;
                 else throw new IllegalArgumentException("Invalid JavaVersion: " + s);
             }
         }
 
-        int[] vnum = new int[lvnum.size()];
-        for (int x = 0; x < lvnum.size(); x++)
-            vnum[x] = lvnum.get(x);
-        return new JavaVersion(s, vnum, pre, build, opt);
+        if (vcount != vnum.length)
+            vnum = Arrays.copyOf(vnum, vcount);
+
+        return new JavaVersion(s.toString(), vnum, pre, build, opt);
     }
 
     private int compareInts(int a, int b) {
@@ -145,6 +204,9 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         if (o == null)
             throw new NullPointerException();
 
+        if (key != UNPACKED && o.key != UNPACKED)
+            return Long.compare(o.key, key);
+
         int len = this.vnum.length;
         if (o.vnum.length < len)
             len = o.vnum.length;
@@ -157,25 +219,27 @@ public final class JavaVersion implements Comparable<JavaVersion> {
         if (vnum.length != o.vnum.length)
             return o.vnum.length - vnum.length;
 
-        int ret = compareInts(preI, o.preI);
-        if (ret != 0)
-            return ret;
-
-        if (pre == null) {
-            if (o.pre != null)
-                return -1;
+        // Releases come before pre-releases
+        if (pre == null || o.pre == null) {
+            if (pre != o.pre)
+                return pre == null ? -1 : 1;
         } else {
+            int ret = compareInts(preI, o.preI);
+            if (ret != 0)
+                return ret;
             ret = pre.compareTo(o.pre);
             if (ret != 0)
                 return ret;
         }
 
-        ret = compareInts(build, o.build);
+        int ret = compareInts(build, o.build);
         if (ret != 0)
             return ret;
 
         if (opt == null)
             return o.opt == null ? 0 : -1;
+        if (o.opt == null)
+            return 1;
         return opt.compareTo(o.opt);
     }
 
@@ -188,4 +252,9 @@ public final class JavaVersion implements Comparable<JavaVersion> {
     public int hashCode() {
         return this.str.hashCode();
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o instanceof JavaVersion && this.str.equals(((JavaVersion)o).str));
+    }
+}
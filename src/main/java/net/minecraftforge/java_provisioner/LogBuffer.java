@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.ILocatorListener;
+
+/**
+ * Formats locator events into the human readable lines that {@link net.minecraftforge.java_provisioner.api.IJavaLocator#logOutput()}
+ * has always returned. Only the most recent lines are kept, so a locator that lives for the length
+ * of a Gradle daemon doesn't grow forever.
+ */
+public class LogBuffer implements ILocatorListener {
+    public static final int DEFAULT_SIZE = 1000;
+
+    private final int size;
+    private final Deque<String> lines;
+
+    public LogBuffer() {
+        this(DEFAULT_SIZE);
+    }
+
+    public LogBuffer(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        this.size = size;
+        this.lines = new ArrayDeque<>(Math.min(size, 64));
+    }
+
+    /**
+     * Returns a snapshot of the buffered lines, oldest first.
+     */
+    public synchronized List<String> lines() {
+        return new ArrayList<>(lines);
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+    }
+
+    protected synchronized void add(String line) {
+        if (lines.size() == size)
+            lines.removeFirst();
+        lines.addLast(line);
+    }
+
+    @Override
+    public void searching(Source source, String name, String value) {
+        switch (source) {
+            case ENVIRONMENT:
+                if (value == null) {
+                    add("Environment: \"" + name + "\" Empty");
+                } else {
+                    add("Environment: \"" + name + "\"");
+                    add("  Value: \"" + value + "\"");
+                }
+                break;
+            case PROPERTY:
+                add("Property: " + name + " = " + value);
+                break;
+            case DIRECTORY:
+                add(name + ": \"" + value + "\"");
+                break;
+        }
+    }
+
+    @Override
+    public void probeFinished(File home, IJavaInstall install, int exitCode, List<String> output) {
+        if (exitCode == 0)
+            return;
+
+        add("  Exit code: " + exitCode);
+        if (output != null) {
+            for (String line : output)
+                add("  " + line);
+        }
+    }
+
+    @Override
+    public void candidateRejected(File home, Rejection reason, IJavaInstall install, int wanted) {
+        switch (reason) {
+            case MISSING:
+                add("  Does not exist");
+                break;
+            case MISSING_EXECUTABLE:
+                add("  Missing Executable");
+                break;
+            case WRONG_VERSION:
+                add("  Wrong version: Was " + install.majorVersion() + " wanted " + wanted);
+                break;
+        }
+    }
+
+    @Override
+    public void message(Level level, String message) {
+        add(message);
+    }
+}
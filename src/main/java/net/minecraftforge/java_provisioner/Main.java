@@ -6,22 +6,22 @@ package net.minecraftforge.java_provisioner;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import joptsimple.AbstractOptionSpec;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
-import net.minecraftforge.java_provisioner.Disco.Arch;
 import net.minecraftforge.java_provisioner.Disco.Distro;
 import net.minecraftforge.java_provisioner.api.IJavaInstall;
+import net.minecraftforge.java_provisioner.api.InstallRanking;
 import net.minecraftforge.java_provisioner.api.IJavaLocator;
-import net.minecraftforge.java_provisioner.util.OS;
 import net.minecraftforge.util.logging.Log;
 
 public class Main {
@@ -40,25 +40,69 @@ public class Main {
                 "Directory to store data needed for this program")
                 .withRequiredArg().ofType(File.class).defaultsTo(new File("cache"));
 
+        OptionSpec<String> providerO = parser.accepts("provider",
+                "Disco API endpoint to use, can be specified multiple times to fail over in order of preference")
+                .withRequiredArg().ofType(String.class).defaultsTo(Disco.DEFAULT_PROVIDER);
+
         AbstractOptionSpec<Void> offlineO = parser.accepts("offline",
                 "Do not attempt to download any JDKs, only use the cache");
 
         OptionSpec<Integer> versionO = parser.accepts("version",
-                "Major version of java to try and locate")
-                .withRequiredArg().ofType(Integer.class);
+                "Major version of java to try and locate, or several separated by commas such as 8,17,21 to locate them in one pass")
+                .withRequiredArg().ofType(Integer.class).withValuesSeparatedBy(',');
 
         OptionSpec<Void> allO = parser.accepts("all",
                 "Display information about all detected java installs");
 
         OptionSpec<Void> testO = parser.accepts("test", "Enable test functionality, provisioning a bunch of jdks.");
 
+        OptionSpec<String> bulkO = parser.accepts("bulk",
+                "Provision a matrix of versions and distros at once, such as 8,11,17,21:temurin,zulu")
+                .withRequiredArg().ofType(String.class);
+
+        OptionSpec<Integer> networkO = parser.accepts("network-threads",
+                "How many lookups and downloads --bulk can run at once")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(BulkProvisioner.DEFAULT_NETWORK);
+
+        OptionSpec<Integer> diskO = parser.accepts("disk-threads",
+                "How many archives --bulk can extract at once")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(BulkProvisioner.DEFAULT_DISK);
+
+        OptionSpec<String> profileO = parser.accepts("profile",
+                "What to extract from downloaded JDKs: full, tools (no sources, jmods, docs or demos), or minimal (only what is needed to run java)")
+                .withRequiredArg().ofType(String.class).defaultsTo(ExtractionProfile.FULL.key());
+
+        OptionSpec<Void> lazyO = parser.accepts("lazy",
+                "Return provisioned JDKs once they can run and compile, extracting the rest of the profile in the background");
+
+        OptionSpec<Void> cdsO = parser.accepts("cds",
+                "Generate a class data sharing archive for provisioned JDKs that don't come with one, so they start faster");
+
+        OptionSpec<String> slimO = parser.accepts("slim",
+                "With --version, link a runtime with only these comma separated modules from a cached or provisioned JDK")
+                .withRequiredArg().ofType(String.class);
+
+        OptionSpec<File> reportO = parser.accepts("report",
+                "Write timings, transfer sizes and cache hits for this run to the specified json file")
+                .withRequiredArg().ofType(File.class);
+
         OptionSet options = parser.parse(args);
         if (options.has(helpO)) {
             parser.printHelpOn(Log.INFO);
             return;
         }
         File cache = options.valueOf(cacheO);
-        DiscoLocator disco = new DiscoLocator(cache, options.has(offlineO));
+        List<String> providers = options.valuesOf(providerO);
+        ExtractionProfile profile = ExtractionProfile.byKey(options.valueOf(profileO));
+        if (profile == null) {
+            Log.error("Unknown profile: " + options.valueOf(profileO));
+            parser.printHelpOn(Log.INFO);
+            System.exit(-1);
+        }
+        DiscoLocator disco = new DiscoLocator(cache, providers, options.has(offlineO));
+        disco.setProfile(profile);
+        disco.setLazy(options.has(lazyO));
+        disco.setCds(options.has(cdsO));
 
         List<IJavaLocator> locators = new ArrayList<>();
         locators.add(new JavaHomeLocator());
@@ -66,12 +110,18 @@ public class Main {
         locators.add(new JavaDirectoryLocator());
         locators.add(disco);
 
+        Metrics metrics = options.has(reportO) ? new Metrics() : null;
+        for (IJavaLocator locator : locators)
+            locator.setMetrics(metrics);
+
         if (options.has(testO)) {
             // populate downloaded for testing
-            Disco tmp = new Disco(cache);
-            int version = options.has(versionO) ? options.valueOf(versionO) : 22;
+            Disco tmp = new Disco(cache, providers, false);
+            tmp.setMetrics(metrics);
+            tmp.setProfile(profile);
+            int version = options.has(versionO) ? options.valuesOf(versionO).get(0) : 22;
             for (Distro dist : new Distro[] { Distro.TEMURIN, Distro.AOJ, Distro.ORACLE, Distro.ZULU, Distro.GRAALVM, Distro.GRAALVM_COMMUNITY}) {
-                List<Disco.Package> jdks = tmp.getPackages(version, OS.CURRENT, dist, Arch.CURRENT);
+                List<Disco.Package> jdks = tmp.getPackages(version, tmp.host().os(), dist, tmp.host().arch());
                 int seen = 0;
                 for (Disco.Package pkg : jdks) {
                     if (seen++ < 3)
@@ -80,16 +130,38 @@ public class Main {
             }
         }
 
-        if (options.has(allO)) {
+        boolean success = true;
+        if (options.has(bulkO)) {
+            Disco tmp = new Disco(cache, providers, options.has(offlineO));
+            tmp.setMetrics(metrics);
+            tmp.setProfile(profile);
+            BulkProvisioner bulk = new BulkProvisioner(tmp, options.valueOf(networkO), options.valueOf(diskO));
+            success = bulkProvision(bulk, BulkProvisioner.parse(options.valueOf(bulkO)));
+        } else if (options.has(allO)) {
             listAllJavaInstalls(locators);
+        } else if (options.has(versionO) && options.has(slimO)) {
+            List<Integer> versions = options.valuesOf(versionO);
+            if (versions.size() != 1) {
+                Log.error("--slim links a single version, but " + versions.size() + " were specified");
+                System.exit(-1);
+            }
+            success = provisionSlim(disco, versions.get(0), options.valueOf(slimO));
+        } else if (options.has(versionO) && options.valuesOf(versionO).size() > 1) {
+            success = findVersions(locators, disco, options.valuesOf(versionO));
         } else if (options.has(versionO)) {
             int version = options.valueOf(versionO);
-            findSpecificVersion(locators, disco, version);
+            success = findSpecificVersion(locators, disco, version);
         } else {
             Log.error("You must specify a version to search for using --version or --all to list all java installs.");
             parser.printHelpOn(Log.INFO);
             System.exit(-1);
         }
+
+        if (metrics != null)
+            metrics.write(options.valueOf(reportO));
+
+        if (!success)
+            System.exit(1);
     }
 
     private static boolean hasArgument(String[] args, String arg) {
@@ -101,7 +173,7 @@ public class Main {
         return false;
     }
 
-    private static void findSpecificVersion(List<IJavaLocator> locators, DiscoLocator disco, int version) {
+    private static boolean findSpecificVersion(List<IJavaLocator> locators, DiscoLocator disco, int version) {
         File result = null;
         for (IJavaLocator locator : locators) {
             result = locator.find(version);
@@ -121,6 +193,7 @@ public class Main {
             if (!home.endsWith(File.separator))
                 home += File.separatorChar;
             Log.info(home);
+            return true;
         } else {
             Log.error("Failed to find sutable java for version " + version);
             for (IJavaLocator locator : locators) {
@@ -129,10 +202,76 @@ public class Main {
                     Log.error("  " + line);
                 }
             }
-            System.exit(1);
+            return false;
         }
     }
 
+    private static boolean findVersions(List<IJavaLocator> locators, DiscoLocator disco, List<Integer> versions) {
+        Map<Integer, IJavaInstall> results = new BatchResolver(locators, disco).resolve(versions);
+
+        boolean success = true;
+        for (Map.Entry<Integer, IJavaInstall> entry : results.entrySet()) {
+            IJavaInstall install = entry.getValue();
+            if (install != null && install.home().exists()) {
+                String home = install.home().getAbsolutePath();
+                if (!home.endsWith(File.separator))
+                    home += File.separatorChar;
+                Log.info(entry.getKey() + ": " + home);
+            } else {
+                Log.error("Failed to find sutable java for version " + entry.getKey());
+                success = false;
+            }
+        }
+
+        if (!success) {
+            for (IJavaLocator locator : locators) {
+                Log.error("Locator: " + locator.getClass().getSimpleName());
+                for (String line : locator.logOutput()) {
+                    Log.error("  " + line);
+                }
+            }
+        }
+        return success;
+    }
+
+    private static boolean provisionSlim(DiscoLocator disco, int version, String modules) {
+        IJavaInstall install = disco.provisionSlim(version, Arrays.asList(modules.split(",")));
+        if (install == null) {
+            Log.error("Failed to link a slim runtime with " + modules + " for version " + version);
+            for (String line : disco.logOutput())
+                Log.error("  " + line);
+            return false;
+        }
+
+        String home = install.home().getAbsolutePath();
+        if (!home.endsWith(File.separator))
+            home += File.separatorChar;
+        Log.info(home);
+        return true;
+    }
+
+    private static boolean bulkProvision(BulkProvisioner bulk, List<BulkProvisioner.Request> requests) {
+        BulkProvisioner.Report report = bulk.provision(requests);
+        for (BulkProvisioner.Result result : report.results) {
+            if (result.success()) {
+                Log.info(result.request + " " + result.home.getAbsolutePath());
+                Log.info("  Package:  " + result.pkg.filename);
+                Log.info("  Download: " + millis(result.downloadNanos) + "ms " + result.bytes + " bytes");
+                Log.info("  Extract:  " + millis(result.extractNanos) + "ms");
+            } else {
+                Log.error(result.request + " Failed: " + result.error);
+            }
+        }
+        double mb = report.bytes() / (1024.0 * 1024.0);
+        Log.info(String.format(Locale.ENGLISH, "Provisioned %d items, %.1f MB in %dms (%.1f MB/s)",
+            report.results.size(), mb, millis(report.nanos), report.throughput() / (1024.0 * 1024.0)));
+        return report.success();
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
     private static void listAllJavaInstalls(List<IJavaLocator> locators) {
         List<IJavaInstall> installs = new ArrayList<>();
 
@@ -149,7 +288,7 @@ public class Main {
                 itr.remove();
         }
 
-        Collections.sort(installs);
+        InstallRanking.DEFAULT.sort(installs);
 
         for (IJavaInstall install : installs) {
             Log.info(install.home().getAbsolutePath());
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+import net.minecraftforge.java_provisioner.util.OS;
+
+/**
+ * Collects how long each part of locating and provisioning a java install took, along with
+ * how much data moved and how often the caches were useful. Attach one to locators with
+ * {@link net.minecraftforge.java_provisioner.api.IJavaLocator#setMetrics(Metrics)} or to
+ * {@link Disco#setMetrics(Metrics)}, then read it back or {@link #write(File) write} it as json.
+ * <p>
+ * Thread safe, so a single instance can be shared by everything in a run.
+ */
+public class Metrics {
+    public enum Phase {
+        /** Running the java probe against a home, hits are reused probe results */
+        PROBE,
+        /** Getting the disco package list, hits are the cached packages.json */
+        CATALOG,
+        /** Getting info for a single package, hits are cached package info */
+        INFO,
+        /** Downloading an archive, hits are archives already in the cache. Bytes are bytes transferred */
+        DOWNLOAD,
+        /** Fetching and verifying checksums of downloaded archives */
+        CHECKSUM,
+        /** Extracting an archive, hits are already extracted installs. Bytes and entries are what was written */
+        EXTRACT,
+        /** Linking slim runtimes with jlink, hits are runtimes already in the cache */
+        LINK;
+
+        private final String key = name().toLowerCase(Locale.ENGLISH);
+    }
+
+    public static final class Stat {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong entries = new AtomicLong();
+
+        public long count()   { return count.get(); }
+        public long nanos()   { return nanos.get(); }
+        public long maxNanos(){ return max.get(); }
+        public long hits()    { return hits.get(); }
+        public long misses()  { return misses.get(); }
+        public long bytes()   { return bytes.get(); }
+        public long entries() { return entries.get(); }
+    }
+
+    private final long started = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Map<Phase, Stat> stats = new EnumMap<>(Phase.class);
+
+    public Metrics() {
+        for (Phase phase : Phase.values())
+            stats.put(phase, new Stat());
+    }
+
+    public Stat get(Phase phase) {
+        return stats.get(phase);
+    }
+
+    /**
+     * Records one occurrence of the phase, which started at the specified {@link System#nanoTime()}
+     */
+    public void time(Phase phase, long start) {
+        long elapsed = System.nanoTime() - start;
+        Stat stat = stats.get(phase);
+        stat.count.incrementAndGet();
+        stat.nanos.addAndGet(elapsed);
+        stat.max.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public void hit(Phase phase) {
+        stats.get(phase).hits.incrementAndGet();
+    }
+
+    public void miss(Phase phase) {
+        stats.get(phase).misses.incrementAndGet();
+    }
+
+    public void bytes(Phase phase, long bytes) {
+        stats.get(phase).bytes.addAndGet(bytes);
+    }
+
+    public void entries(Phase phase, long entries) {
+        stats.get(phase).entries.addAndGet(entries);
+    }
+
+    public JsonObject toJson() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ENGLISH);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        JsonObject ret = new JsonObject();
+        ret.addProperty("started", iso.format(new Date(started)));
+        ret.addProperty("duration_ms", millis(System.nanoTime() - startNanos));
+        ret.addProperty("os", OS.CURRENT.key());
+        ret.addProperty("arch", Arch.CURRENT.key());
+
+        JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values()) {
+            Stat stat = stats.get(phase);
+            JsonObject json = new JsonObject();
+            json.addProperty("count", stat.count());
+            json.addProperty("total_ms", millis(stat.nanos()));
+            json.addProperty("max_ms", millis(stat.maxNanos()));
+            json.addProperty("hits", stat.hits());
+            json.addProperty("misses", stat.misses());
+            json.addProperty("bytes", stat.bytes());
+            json.addProperty("entries", stat.entries());
+            phases.add(phase.key, json);
+        }
+        ret.add("phases", phases);
+        return ret;
+    }
+
+    public void write(File output) throws IOException {
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+        try (Writer out = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), out);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
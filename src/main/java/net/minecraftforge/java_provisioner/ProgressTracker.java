@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.util.function.Consumer;
+
+import net.minecraftforge.java_provisioner.api.Progress;
+
+/**
+ * Counts bytes and entries in a copy loop, and turns them into {@link Progress} reports at most every
+ * {@link #INTERVAL} nanoseconds. The clock is only read every {@link #CHECK_BYTES} bytes, so counting is
+ * just an addition and a compare. Not thread safe, each transfer gets its own.
+ */
+final class ProgressTracker {
+    static final long INTERVAL = 250_000_000L; // 250ms
+    private static final long CHECK_BYTES = 256 * 1024;
+
+    private final Consumer<Progress> sink;
+    private final long start = System.nanoTime();
+    private long total;
+    private long bytes;
+    private long entries;
+    private long nextCheck = CHECK_BYTES;
+    private long lastTime = start;
+    private long lastBytes;
+
+    ProgressTracker(long total, Consumer<Progress> sink) {
+        this.total = total;
+        this.sink = sink;
+    }
+
+    /** Replaces the expected total, such as once the server has said how big the file is */
+    void total(long total) {
+        this.total = total;
+    }
+
+    void add(long count) {
+        bytes += count;
+        if (bytes >= nextCheck)
+            check();
+    }
+
+    void entry() {
+        entries++;
+    }
+
+    /** Sends the final report */
+    void done() {
+        report(System.nanoTime(), true);
+    }
+
+    private void check() {
+        nextCheck = bytes + CHECK_BYTES;
+        long now = System.nanoTime();
+        if (now - lastTime >= INTERVAL)
+            report(now, false);
+    }
+
+    private void report(long now, boolean done) {
+        sink.accept(new Progress(bytes, total, entries, now - start, bytes - lastBytes, now - lastTime, done));
+        lastTime = now;
+        lastBytes = bytes;
+    }
+}
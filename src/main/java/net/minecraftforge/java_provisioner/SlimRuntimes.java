@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import net.minecraftforge.java_provisioner.util.FileUtils;
+import net.minecraftforge.java_provisioner.util.OS;
+import net.minecraftforge.java_provisioner.util.ProcessUtils;
+import net.minecraftforge.util.hash.HashFunction;
+
+/**
+ * Runtimes linked by jlink with only the modules a tool needs, which start faster and touch less of the disk
+ * than the full JDK. They live in {@code slim/} under the disco cache, one directory per source JDK and module set,
+ * named after the source so it is obvious where they came from.
+ */
+final class SlimRuntimes {
+    static final String DIRECTORY = "slim";
+
+    private SlimRuntimes() {}
+
+    /** Sorted and without duplicates, so the same modules in any order are the same runtime */
+    static List<String> normalize(Collection<String> modules) {
+        TreeSet<String> ret = new TreeSet<>();
+        for (String module : modules) {
+            String name = module.trim();
+            if (!name.isEmpty())
+                ret.add(name);
+        }
+        return new ArrayList<>(ret);
+    }
+
+    /**
+     * The directory for a runtime, keyed by where the source is, its version, and the modules. Sources are often
+     * updated in place, such as /usr/lib/jvm/java-17, and a different version there needs a new runtime.
+     *
+     * @param version The source's version, from its release file if it has one
+     */
+    static File directory(File cache, File source, String version, List<String> modules) {
+        String key = source.getAbsolutePath() + '\n' + version + '\n' + String.join(",", modules);
+        String hash = HashFunction.SHA1.hash(key.getBytes(StandardCharsets.UTF_8));
+        return new File(new File(cache, DIRECTORY), name(source) + '-' + hash.substring(0, 12));
+    }
+
+    // Every mac home is Name.jdk/Contents/Home, the bundle name is the one worth showing
+    private static String name(File source) {
+        File parent = source.getAbsoluteFile().getParentFile();
+        if ("Home".equals(source.getName()) && parent != null && "Contents".equals(parent.getName()) && parent.getParentFile() != null)
+            return parent.getParentFile().getName();
+        return source.getName();
+    }
+
+    /**
+     * Links the modules from the source JDK into the target directory. The image is built next to the target
+     * and moved into place once finished, so a half linked runtime is never found.
+     *
+     * @param lines Receives jlink's output
+     * @return If the target now has a runtime, possibly linked by someone else at the same time
+     */
+    static boolean link(File source, List<String> modules, File target, List<String> lines) {
+        File jlink = new File(source, "bin/jlink" + OS.CURRENT.exe());
+        if (!jlink.exists()) {
+            lines.add("Missing " + jlink);
+            return false;
+        }
+
+        File parent = target.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File tmp = new File(parent, target.getName() + ".tmp-" + Long.toHexString(System.nanoTime()));
+
+        List<String> args = new ArrayList<>();
+        args.add(jlink.getAbsolutePath());
+        // Since 24 some JDKs can link from their own runtime and don't ship jmods, jlink finds those itself
+        File jmods = new File(source, "jmods");
+        if (jmods.isDirectory()) {
+            args.add("--module-path");
+            args.add(jmods.getAbsolutePath());
+        }
+        args.add("--add-modules");
+        args.add(String.join(",", modules));
+        // Nothing runs a debugger or compiles native code against these. Not compressed, that costs startup time.
+        args.add("--strip-debug");
+        args.add("--no-header-files");
+        args.add("--no-man-pages");
+        args.add("--output");
+        args.add(tmp.getAbsolutePath());
+
+        try {
+            int exitCode = ProcessUtils.runCommand(lines, args.toArray(new String[0]));
+            if (exitCode != 0 || !exists(tmp)) {
+                lines.add("jlink exited with " + exitCode);
+                return false;
+            }
+
+            InstallMetadata data = new InstallMetadata();
+            data.source = source.getAbsolutePath();
+            data.modules = modules;
+            data.time = System.currentTimeMillis();
+            data.write(tmp);
+
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Someone else linked the same thing first
+                if (!exists(target))
+                    throw e;
+            }
+            return true;
+        } catch (IOException e) {
+            lines.add("Failed to finish " + target + ": " + e.getMessage());
+            return false;
+        } finally {
+            delete(tmp, lines);
+        }
+    }
+
+    static boolean exists(File home) {
+        return new File(home, "bin/java" + OS.CURRENT.exe()).exists();
+    }
+
+    private static void delete(File file, List<String> lines) {
+        try {
+            FileUtils.delete(file);
+        } catch (IOException e) {
+            lines.add("Failed to delete " + file + ": " + e.getMessage());
+        }
+    }
+}
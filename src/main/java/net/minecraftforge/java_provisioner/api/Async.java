@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Backs the async methods of {@link IJavaLocator}.
+ * <p>
+ * {@link CompletableFuture#cancel(boolean)} normally only completes the future, and leaves the work running.
+ * Futures from here also interrupt the thread running the work, which probes, downloads and extractions check
+ * so they can stop early and clean up after themselves.
+ */
+final class Async {
+    // Locating and provisioning is mostly waiting on processes, disk and network, so the common pool is a bad fit
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    static final ExecutorService DEFAULT = Executors.newCachedThreadPool(r -> {
+        Thread ret = new Thread(r, "JavaLocator-" + COUNT.incrementAndGet());
+        ret.setDaemon(true);
+        return ret;
+    });
+
+    private Async() {}
+
+    /**
+     * @param executor Runs the task, or null for {@link #DEFAULT}
+     */
+    static <T> CompletableFuture<T> supply(Supplier<T> task, Executor executor) {
+        Task<T> ret = new Task<>(task);
+        try {
+            (executor == null ? DEFAULT : executor).execute(ret);
+        } catch (RejectedExecutionException e) {
+            ret.completeExceptionally(e);
+        }
+        return ret;
+    }
+
+    private static final class Task<T> extends CompletableFuture<T> implements Runnable {
+        private final Supplier<T> task;
+        private Thread thread; // Guarded by this
+
+        private Task(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (isDone())
+                    return;
+                thread = Thread.currentThread();
+            }
+
+            try {
+                complete(task.get());
+            } catch (Throwable t) {
+                completeExceptionally(t);
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                // Don't leave the pool's thread interrupted if we were cancelled
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean ret = super.cancel(mayInterruptIfRunning);
+            if (ret && mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (thread != null)
+                        thread.interrupt();
+                }
+            }
+            return ret;
+        }
+    }
+}
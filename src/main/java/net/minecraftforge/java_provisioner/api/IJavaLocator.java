@@ -7,11 +7,14 @@ package net.minecraftforge.java_provisioner.api;
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import net.minecraftforge.java_provisioner.DiscoLocator;
 import net.minecraftforge.java_provisioner.GradleLocator;
 import net.minecraftforge.java_provisioner.JavaDirectoryLocator;
 import net.minecraftforge.java_provisioner.JavaHomeLocator;
+import net.minecraftforge.java_provisioner.Metrics;
 
 public interface IJavaLocator {
     /**
@@ -28,8 +31,9 @@ public interface IJavaLocator {
     List<IJavaInstall> findAll();
 
     /**
-     * Returns all loged messages this provider has output, honestly this is just a hack
-     * until I decide what type of logging API I want to expose.
+     * Returns the most recent messages this provider has output, formatted from its events by a {@link
+     * net.minecraftforge.java_provisioner.LogBuffer LogBuffer}. This is empty if the default listener
+     * has been replaced with {@link #setListener(ILocatorListener)}.
      */
     List<String> logOutput();
 
@@ -44,6 +48,67 @@ public interface IJavaLocator {
         return null;
     }
 
+    /**
+     * Runs {@link #find(int)} on a shared pool of daemon threads.
+     * Cancelling the future with interruption stops any probe that is running.
+     */
+    default CompletableFuture<File> findAsync(int version) {
+        return findAsync(version, null);
+    }
+
+    /**
+     * Runs {@link #find(int)} on the specified executor, or a shared pool of daemon threads if null.
+     */
+    default CompletableFuture<File> findAsync(int version, Executor executor) {
+        return Async.supply(() -> find(version), executor);
+    }
+
+    /**
+     * Runs {@link #findAll()} on a shared pool of daemon threads.
+     * Cancelling the future with interruption stops any probe that is running.
+     */
+    default CompletableFuture<List<IJavaInstall>> findAllAsync() {
+        return findAllAsync(null);
+    }
+
+    /**
+     * Runs {@link #findAll()} on the specified executor, or a shared pool of daemon threads if null.
+     */
+    default CompletableFuture<List<IJavaInstall>> findAllAsync(Executor executor) {
+        return Async.supply(this::findAll, executor);
+    }
+
+    /**
+     * Runs {@link #provision(int)} on a shared pool of daemon threads, so it can overlap with other work.
+     * Cancelling the future with interruption aborts the download or extraction that is in progress,
+     * and removes anything it had partially written.
+     */
+    default CompletableFuture<IJavaInstall> provisionAsync(int version) {
+        return provisionAsync(version, null);
+    }
+
+    /**
+     * Runs {@link #provision(int)} on the specified executor, or a shared pool of daemon threads if null.
+     */
+    default CompletableFuture<IJavaInstall> provisionAsync(int version, Executor executor) {
+        return Async.supply(() -> provision(version), executor);
+    }
+
+    /**
+     * Records probe, download and extraction timings, transfer sizes and cache hits into the specified metrics.
+     * Pass null to stop recording. Locators that have nothing worth measuring ignore this.
+     */
+    default void setMetrics(Metrics metrics) {
+    }
+
+    /**
+     * Replaces the listener that receives this locator's search, probe and provisioning events.
+     * By default locators buffer recent events for {@link #logOutput()}, pass null to disable that
+     * and skip building events altogether.
+     */
+    default void setListener(ILocatorListener listener) {
+    }
+
     /**
      * Returns a locator that attempts to find any toolchains installed by Gradle's toolchain plugin.
      * Uses GRADLE_HOME as the root directory.
@@ -68,7 +133,8 @@ public interface IJavaLocator {
     }
 
     /**
-     * Returns a locator that searches the specified directories, and immediate sub-directories.
+     * Returns a locator that searches the specified directories, and their sub-directories up to
+     * {@link JavaDirectoryLocator#DEFAULT_DEPTH} deep.
      */
     static IJavaLocator paths(File... dirs) {
         return new JavaDirectoryLocator(Arrays.asList(dirs));
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Receives what locators are doing as they search for and provision java installs.
+ * Attach one with {@link IJavaLocator#setListener(ILocatorListener)}. When no listener is attached
+ * locators skip building these events entirely.
+ * <p>
+ * All methods default to doing nothing, so implementations only need to override what they care about.
+ * Events may be fired from any thread that is using the locator.
+ */
+public interface ILocatorListener {
+    enum Source {
+        /** An environment variable, value is null if it is not set */
+        ENVIRONMENT,
+        /** A system property, value is null if it is not set */
+        PROPERTY,
+        /** A directory that may contain a java home, name describes where it came from */
+        DIRECTORY
+    }
+
+    enum Rejection {
+        /** The location does not exist */
+        MISSING,
+        /** The location exists, but has no java executable */
+        MISSING_EXECUTABLE,
+        /** The install is valid, but not the major version that was asked for */
+        WRONG_VERSION
+    }
+
+    enum Level {
+        DEBUG,
+        ERROR
+    }
+
+    /** A locator is looking at a place that may point to a java install */
+    default void searching(Source source, String name, String value) {}
+
+    /** A java home is about to be probed, this is not fired when a cached probe result is reused */
+    default void probeStarted(File home) {}
+
+    /**
+     * A java home has been probed.
+     * @param install The result, or null if the probe failed
+     * @param exitCode The exit code of the probe process
+     * @param output The output of the probe process, only provided when it failed
+     */
+    default void probeFinished(File home, IJavaInstall install, int exitCode, List<String> output) {}
+
+    /**
+     * A candidate was found but can not be used.
+     * @param install The probed install, only provided for {@link Rejection#WRONG_VERSION}
+     * @param wanted The major version that was asked for, or -1 if not relevant
+     */
+    default void candidateRejected(File home, Rejection reason, IJavaInstall install, int wanted) {}
+
+    /** An archive is about to be downloaded */
+    default void downloadStarted(String url, File target) {}
+
+    /**
+     * Periodic progress of a download, at most a few times a second. The last report has {@link Progress#done} set,
+     * and is sent before {@link #downloadFinished(String, File, boolean)}.
+     */
+    default void downloadProgress(String url, File target, Progress progress) {}
+
+    /** A download has finished, successful or not */
+    default void downloadFinished(String url, File target, boolean success) {}
+
+    /** An archive is about to be extracted */
+    default void extractStarted(File archive, File target) {}
+
+    /**
+     * Periodic progress of an extraction, at most a few times a second. The last report has {@link Progress#done} set,
+     * and is sent before {@link #extractFinished(File, File, boolean)}.
+     */
+    default void extractProgress(File archive, File target, Progress progress) {}
+
+    /** An extraction has finished, successful or not */
+    default void extractFinished(File archive, File target, boolean success) {}
+
+    /** Free form messages that don't have a more specific event, such as the details of a disco download */
+    default void message(Level level, String message) {}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import net.minecraftforge.java_provisioner.JavaVersion;
+
+/**
+ * Orders java installs from most to least preferred:
+ * JDKs before JREs, newest major version first, then by vendor preference, then newest version first.
+ * <p>
+ * Vendor preference is a table of patterns, most preferred first. Vendors that match none of them
+ * come after those that do, ordered by name. Each distinct vendor string is only matched against
+ * the table once, after that it's a map lookup.
+ * <p>
+ * Comparing two installs directly builds their keys each time. When sorting a list use
+ * {@link #sort(List)}, which builds each key once.
+ */
+public final class InstallRanking implements Comparator<IJavaInstall> {
+    public static final InstallRanking DEFAULT = new InstallRanking(
+        "temurin|adoptium|eclipse foundation",
+        "adoptopenjdk",
+        "azul systems"
+    );
+
+    private final Pattern[] vendors;
+    private final Map<String, Integer> ranks = new ConcurrentHashMap<>();
+
+    /**
+     * @param vendors Case insensitive regular expressions, matched anywhere in the vendor name. Most preferred first.
+     */
+    public InstallRanking(String... vendors) {
+        this.vendors = new Pattern[vendors.length];
+        for (int x = 0; x < vendors.length; x++)
+            this.vendors[x] = Pattern.compile(vendors[x], Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Returns the position of the vendor in the preference table, or -1 if it isn't in the table.
+     */
+    public int vendorRank(String vendor) {
+        Integer ret = ranks.get(vendor);
+        if (ret == null) {
+            ret = -1;
+            for (int x = 0; x < vendors.length; x++) {
+                if (vendors[x].matcher(vendor).find()) {
+                    ret = x;
+                    break;
+                }
+            }
+            ranks.put(vendor, ret);
+        }
+        return ret;
+    }
+
+    public Key key(IJavaInstall install) {
+        return new Key(this, install);
+    }
+
+    @Override
+    public int compare(IJavaInstall o1, IJavaInstall o2) {
+        return key(o1).compareTo(key(o2));
+    }
+
+    /**
+     * Sorts the list in place, computing each install's key only once.
+     */
+    public <T extends IJavaInstall> void sort(List<T> installs) {
+        List<Key> keys = new ArrayList<>(installs.size());
+        for (T install : installs)
+            keys.add(key(install));
+
+        Collections.sort(keys);
+
+        for (int x = 0; x < keys.size(); x++) {
+            @SuppressWarnings("unchecked")
+            T install = (T)keys.get(x).install;
+            installs.set(x, install);
+        }
+    }
+
+    public static final class Key implements Comparable<Key> {
+        private final IJavaInstall install;
+        private final boolean jdk;
+        private final int major;
+        private final String vendor;
+        private final int vendorRank;
+        private final String version;
+        private final JavaVersion parsed;
+
+        private Key(InstallRanking ranking, IJavaInstall install) {
+            this.install = install;
+            this.jdk = install.isJdk();
+            this.major = install.majorVersion();
+            this.vendor = install.vendor();
+            this.vendorRank = this.vendor == null ? -1 : ranking.vendorRank(this.vendor);
+            this.version = install.version();
+            this.parsed = this.version == null ? null : JavaVersion.nullableParse(this.version);
+        }
+
+        public IJavaInstall install() {
+            return this.install;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            if (this.jdk != o.jdk)
+                return this.jdk ? -1 : 1;
+            if (this.major != o.major)
+                return o.major - this.major;
+
+            if (this.vendor != null && o.vendor == null)
+                return -1;
+            else if (this.vendor == null && o.vendor != null)
+                return 1;
+            else if (this.vendor != null && !this.vendor.equals(o.vendor)) {
+                if (this.vendorRank == o.vendorRank) {
+                    if (this.vendorRank == -1)
+                        return this.vendor.compareTo(o.vendor);
+                } else if (this.vendorRank == -1)
+                    return 1;
+                else if (o.vendorRank == -1)
+                    return -1;
+                else
+                    return this.vendorRank - o.vendorRank;
+            }
+
+            if (this.version != null && o.version == null)
+                return -1;
+            else if (this.version == null && o.version != null)
+                return 1;
+            else if (this.version != null && !this.version.equals(o.version)) {
+                if (this.parsed == null && o.parsed != null)
+                    return 1;
+                else if (this.parsed != null && o.parsed == null)
+                    return -1;
+                else if (this.parsed == null)
+                    return this.version.compareTo(o.version);
+                return this.parsed.compareTo(o.parsed); // JavaVersion sorts newest first
+            }
+
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A snapshot of the installs found by one scan of a set of locators, indexed by major version and vendor
+ * so any number of {@link JavaQuery queries} can be answered without scanning again.
+ * <p>
+ * Installs found by more than one locator are only kept once. Everything is ordered by the ranking, so
+ * the first match of a query is the most preferred one.
+ */
+public final class InstallRegistry {
+    private final InstallRanking ranking;
+    private final List<IJavaInstall> installs;
+    private final NavigableMap<Integer, List<IJavaInstall>> byMajor = new TreeMap<>();
+    private final Map<String, List<IJavaInstall>> byVendor = new LinkedHashMap<>();
+
+    /**
+     * Runs {@link IJavaLocator#findAll()} once on each of the locators, in order.
+     */
+    public static InstallRegistry scan(IJavaLocator... locators) {
+        List<IJavaInstall> found = new ArrayList<>();
+        for (IJavaLocator locator : locators)
+            found.addAll(locator.findAll());
+        return new InstallRegistry(found, InstallRanking.DEFAULT);
+    }
+
+    public static InstallRegistry of(Collection<? extends IJavaInstall> installs) {
+        return new InstallRegistry(installs, InstallRanking.DEFAULT);
+    }
+
+    public InstallRegistry(Collection<? extends IJavaInstall> installs, InstallRanking ranking) {
+        this.ranking = ranking;
+
+        List<IJavaInstall> unique = new ArrayList<>(installs.size());
+        Set<File> homes = new HashSet<>();
+        for (IJavaInstall install : installs) {
+            if (homes.add(install.home().getAbsoluteFile()))
+                unique.add(install);
+        }
+        ranking.sort(unique);
+        this.installs = Collections.unmodifiableList(unique);
+
+        // Built from the sorted list, so every bucket is already in ranking order
+        for (IJavaInstall install : this.installs) {
+            this.byMajor.computeIfAbsent(install.majorVersion(), k -> new ArrayList<>()).add(install);
+            this.byVendor.computeIfAbsent(install.vendor(), k -> new ArrayList<>()).add(install);
+        }
+    }
+
+    /** Every install, most preferred first */
+    public List<IJavaInstall> all() {
+        return this.installs;
+    }
+
+    /** The major versions that have at least one install, newest first */
+    public Set<Integer> majors() {
+        return Collections.unmodifiableSet(this.byMajor.descendingKeySet());
+    }
+
+    /** The distinct vendors, a null vendor is included if an install didn't report one */
+    public Set<String> vendors() {
+        return Collections.unmodifiableSet(this.byVendor.keySet());
+    }
+
+    /**
+     * @return The installs matching the query, most preferred first. Possibly empty, but never null.
+     */
+    public List<IJavaInstall> query(JavaQuery query) {
+        // Narrow down using whichever index leaves less to check, then check everything else per install
+        List<IJavaInstall> candidates = byMajor(query);
+        List<IJavaInstall> vendors = byVendor(query);
+        if (vendors != null && (candidates == null || vendors.size() < candidates.size()))
+            candidates = vendors;
+        if (candidates == null)
+            candidates = this.installs;
+
+        List<IJavaInstall> ret = new ArrayList<>();
+        for (IJavaInstall install : candidates) {
+            if (query.matches(install))
+                ret.add(install);
+        }
+
+        // Built from more than one bucket, so may be out of order
+        if (candidates != this.installs)
+            this.ranking.sort(ret);
+        return ret;
+    }
+
+    /**
+     * @return The most preferred install matching the query, or null if none do
+     */
+    public IJavaInstall first(JavaQuery query) {
+        List<IJavaInstall> ret = query(query);
+        return ret.isEmpty() ? null : ret.get(0);
+    }
+
+    // Null if the query doesn't limit the major version
+    private List<IJavaInstall> byMajor(JavaQuery query) {
+        int min = query.minMajor();
+        int max = query.maxMajor();
+        if (min == -1 && max == -1)
+            return null;
+        if (min != -1 && max != -1 && min > max)
+            return Collections.emptyList();
+
+        NavigableMap<Integer, List<IJavaInstall>> range = this.byMajor;
+        if (min != -1)
+            range = range.tailMap(min, true);
+        if (max != -1)
+            range = range.headMap(max, true);
+
+        if (range.size() == 1)
+            return range.firstEntry().getValue();
+
+        List<IJavaInstall> ret = new ArrayList<>();
+        for (List<IJavaInstall> bucket : range.values())
+            ret.addAll(bucket);
+        return ret;
+    }
+
+    // Null if the query accepts every vendor. Each vendor is matched once, not once per install.
+    private List<IJavaInstall> byVendor(JavaQuery query) {
+        if (query.matchesVendor(null))
+            return null;
+
+        List<IJavaInstall> ret = null;
+        for (Map.Entry<String, List<IJavaInstall>> entry : this.byVendor.entrySet()) {
+            if (!query.matchesVendor(entry.getKey()))
+                continue;
+            if (ret == null)
+                ret = entry.getValue();
+            else {
+                List<IJavaInstall> merged = new ArrayList<>(ret);
+                merged.addAll(entry.getValue());
+                ret = merged;
+            }
+        }
+        return ret == null ? Collections.<IJavaInstall>emptyList() : ret;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import net.minecraftforge.java_provisioner.Disco.Arch;
+import net.minecraftforge.java_provisioner.JavaVersion;
+
+/**
+ * Describes the java installs a caller will accept, such as "17.0.8 or newer from Temurin, JDK only".
+ * Every condition that is set must match, conditions that aren't set match anything.
+ * <p>
+ * Queries are evaluated against an {@link InstallRegistry}, which returns the matches ordered by
+ * {@link InstallRanking#DEFAULT}.
+ */
+public final class JavaQuery {
+    private int minMajor = -1;
+    private int maxMajor = -1;
+    private JavaVersion atLeast;
+    private JavaVersion below;
+    private final List<Pattern> vendors = new ArrayList<>();
+    private boolean jdk;
+    private Arch arch;
+
+    public JavaQuery() {}
+
+    /** A query for any install of the specified major version */
+    public static JavaQuery of(int major) {
+        return new JavaQuery().major(major);
+    }
+
+    public JavaQuery major(int major) {
+        return majors(major, major);
+    }
+
+    /** Major versions from min to max, both inclusive. -1 leaves that end open */
+    public JavaQuery majors(int min, int max) {
+        this.minMajor = min;
+        this.maxMajor = max;
+        return this;
+    }
+
+    /** The specified version or anything newer, such as {@code 17.0.8} */
+    public JavaQuery atLeast(String version) {
+        this.atLeast = JavaVersion.parse(version);
+        return this;
+    }
+
+    /** Anything older than the specified version, such as {@code 18} to stay on 17 and older */
+    public JavaQuery below(String version) {
+        this.below = JavaVersion.parse(version);
+        return this;
+    }
+
+    /**
+     * Adds an accepted vendor, as a case insensitive regular expression matched anywhere in the vendor name,
+     * the same as {@link InstallRanking}. Any of the added vendors will match.
+     */
+    public JavaQuery vendor(String pattern) {
+        this.vendors.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE));
+        return this;
+    }
+
+    /** Only accept JDKs, not JREs */
+    public JavaQuery jdk() {
+        this.jdk = true;
+        return this;
+    }
+
+    /** Only accept installs compatible with the specified architecture, usually {@link Arch#CURRENT} */
+    public JavaQuery arch(Arch arch) {
+        this.arch = arch;
+        return this;
+    }
+
+    /** The lowest major version this can match, or -1 if there is no lower bound */
+    public int minMajor() {
+        int ret = this.minMajor;
+        if (this.atLeast != null && this.atLeast.major() > ret)
+            ret = this.atLeast.major();
+        return ret;
+    }
+
+    /** The highest major version this can match, or -1 if there is no upper bound */
+    public int maxMajor() {
+        int ret = this.maxMajor;
+        // Pre-releases of the bound's major are older than it, so that major can still match
+        if (this.below != null && (ret == -1 || this.below.major() < ret))
+            ret = this.below.major();
+        return ret;
+    }
+
+    /** If the vendor is accepted, evaluated once per distinct vendor by {@link InstallRegistry} */
+    public boolean matchesVendor(String vendor) {
+        if (this.vendors.isEmpty())
+            return true;
+        if (vendor == null)
+            return false;
+
+        for (Pattern pattern : this.vendors) {
+            if (pattern.matcher(vendor).find())
+                return true;
+        }
+        return false;
+    }
+
+    public boolean matches(IJavaInstall install) {
+        int major = install.majorVersion();
+        int min = minMajor();
+        int max = maxMajor();
+        if ((min != -1 && major < min) || (max != -1 && major > max))
+            return false;
+
+        if (this.jdk && !install.isJdk())
+            return false;
+
+        if (!matchesVendor(install.vendor()))
+            return false;
+
+        if (this.arch != null) {
+            Arch installed = Arch.fromName(install.arch());
+            // Unknown is accepted, nearly everything on a machine is built for it, and old probes didn't report it
+            if (installed != null && installed != Arch.UNKNOWN && !installed.isCompatible(this.arch))
+                return false;
+        }
+
+        if (this.atLeast != null || this.below != null) {
+            JavaVersion version = install.version() == null ? null : JavaVersion.nullableParse(install.version());
+            if (version == null)
+                return false;
+            // JavaVersion sorts newest first
+            if (this.atLeast != null && version.compareTo(this.atLeast) > 0)
+                return false;
+            if (this.below != null && version.compareTo(this.below) <= 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder("JavaQuery[");
+        if (this.minMajor != -1 || this.maxMajor != -1)
+            ret.append("major=").append(this.minMajor == this.maxMajor ? String.valueOf(this.minMajor) : this.minMajor + ".." + this.maxMajor).append(' ');
+        if (this.atLeast != null)
+            ret.append(">=").append(this.atLeast).append(' ');
+        if (this.below != null)
+            ret.append('<').append(this.below).append(' ');
+        if (!this.vendors.isEmpty())
+            ret.append("vendor=").append(this.vendors).append(' ');
+        if (this.jdk)
+            ret.append("jdk ");
+        if (this.arch != null)
+            ret.append("arch=").append(this.arch.key()).append(' ');
+        if (ret.charAt(ret.length() - 1) == ' ')
+            ret.setLength(ret.length() - 1);
+        return ret.append(']').toString();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.api;
+
+/**
+ * A snapshot of how far along a download or extraction is, passed to
+ * {@link ILocatorListener#downloadProgress(String, java.io.File, Progress)} and
+ * {@link ILocatorListener#extractProgress(java.io.File, java.io.File, Progress)}.
+ */
+public final class Progress {
+    /** Bytes transferred so far, for extraction this is the uncompressed bytes written */
+    public final long bytes;
+    /** Total bytes expected, or -1 if unknown */
+    public final long total;
+    /** Files written so far, always 0 for downloads */
+    public final long entries;
+    /** Time since the transfer started */
+    public final long elapsedNanos;
+    /** If this is the last report for this transfer */
+    public final boolean done;
+    private final long intervalBytes;
+    private final long intervalNanos;
+
+    public Progress(long bytes, long total, long entries, long elapsedNanos, long intervalBytes, long intervalNanos, boolean done) {
+        this.bytes = bytes;
+        this.total = total;
+        this.entries = entries;
+        this.elapsedNanos = elapsedNanos;
+        this.intervalBytes = intervalBytes;
+        this.intervalNanos = intervalNanos;
+        this.done = done;
+    }
+
+    /** Between 0 and 1, or -1 if the total is unknown */
+    public double fraction() {
+        return total <= 0 ? -1 : Math.min(1, (double)bytes / total);
+    }
+
+    /** Bytes per second since the previous report */
+    public double rate() {
+        return intervalNanos <= 0 ? 0 : intervalBytes / (intervalNanos / 1_000_000_000.0);
+    }
+
+    /** Bytes per second since the transfer started */
+    public double averageRate() {
+        return elapsedNanos <= 0 ? 0 : bytes / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "Progress[bytes=" + bytes + ", total=" + total + ", entries=" + entries + ", elapsed=" + elapsedNanos / 1_000_000 + "ms]";
+    }
+}
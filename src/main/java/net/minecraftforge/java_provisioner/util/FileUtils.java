@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public final class FileUtils {
+    private FileUtils() {}
+
+    public interface Output {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes the file as UTF-8 through a temp file next to it, which replaces it once complete. Anyone reading it,
+     * in this process or another sharing the directory, sees the old contents or the new, never part of either.
+     * The temp file is removed if anything fails.
+     */
+    public static void writeAtomically(File file, Output output) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        Path tmp = Files.createTempFile(parent.toPath(), file.getName(), ".tmp");
+        boolean moved = false;
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                output.write(writer);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved)
+                Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Deletes the file, or the directory and everything in it. Links are deleted, not followed.
+     * Does nothing if it doesn't exist.
+     */
+    public static void delete(File file) throws IOException {
+        if (!file.exists() && !Files.isSymbolicLink(file.toPath()))
+            return;
+
+        Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+                Files.delete(path);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null)
+                    throw e;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -13,14 +13,20 @@ class JavaInstall implements IJavaInstall {
     private final File home;
     private final String version;
     private final String vendor;
+    private final String arch;
     private final int majorVersion;
     private final File java;
     private final File javac;
 
     JavaInstall(File home, String version, String vendor) {
+        this(home, version, vendor, null);
+    }
+
+    JavaInstall(File home, String version, String vendor, String arch) {
         this.home = home;
         this.version = version;
         this.vendor = vendor;
+        this.arch = arch;
         this.majorVersion = version == null ? -1 : JavaVersion.parse(version).major();
         File tmp = new File(home, "bin/java" + OS.CURRENT.exe());
         this.java = tmp.exists() ? tmp : null;
@@ -53,6 +59,11 @@ class JavaInstall implements IJavaInstall {
         return this.vendor;
     }
 
+    @Override
+    public String arch() {
+        return this.arch;
+    }
+
     @Override
     public String toString() {
         return this.vendor
@@ -4,13 +4,9 @@
  */
 package net.minecraftforge.java_provisioner.util;
 
-import net.minecraftforge.util.logging.Log;
-
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 public enum OS {
     AIX    ("aix",          "aix"),
@@ -24,6 +20,15 @@ public enum OS {
     UNKNOWN("unknown");
 
     private static final OS[] $values = values();
+    private static final Map<String, OS> BY_KEY = new HashMap<>();
+    static {
+        for (OS value : $values)
+            BY_KEY.putIfAbsent(value.key, value);
+    }
+    /**
+     * The operating system according to {@code os.name}. This never touches the file system, so linux
+     * distributions are not told apart. Use {@link net.minecraftforge.java_provisioner.Host#os()} for that.
+     */
     public static final OS CURRENT = getCurrent();
 
     private final String key;
@@ -39,11 +44,7 @@ public enum OS {
     }
 
     public static OS byKey(String key) {
-        for (OS value : $values) {
-            if (value.key.equals(key))
-                return value;
-        }
-        return null;
+        return key == null ? null : BY_KEY.get(key);
     }
 
     public String exe() {
@@ -54,21 +55,8 @@ public enum OS {
         String prop = System.getProperty("os.name").toLowerCase(Locale.ENGLISH);
         for (OS os : $values) {
             for (String key : os.names) {
-                if (prop.contains(key)) {
-                    if (os == LINUX) {
-                        try {
-                            for (String line : Files.readAllLines(Paths.get("/etc/os-release"), StandardCharsets.UTF_8)) {
-                                line = line.toLowerCase(Locale.ENGLISH);
-                                if (line.startsWith("name=") && line.contains("alpine")) {
-                                    return ALPINE;
-                                }
-                            }
-                        } catch (IOException e) {
-                            Log.error("Failed to read /etc/os-release: " + e.getMessage());
-                        }
-                    }
+                if (prop.contains(key))
                     return os;
-                }
             }
         }
         return UNKNOWN;
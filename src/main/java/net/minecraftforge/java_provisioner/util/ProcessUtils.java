@@ -41,7 +41,7 @@ public class ProcessUtils {
             this(root, parent.exitCode, parent.lines);
         }
 
-        private ProbeResult(File root, int exitCode, List<String> lines) {
+        ProbeResult(File root, int exitCode, List<String> lines) { // Package private for benchmarks
             super(lines, exitCode);
 
             if (exitCode != 0) {
@@ -64,7 +64,7 @@ public class ProcessUtils {
 
             String version = get(probe, "java.version", "java.runtime.version", "java.vm.version");
             String vendor = get(probe, "java.vendor", "java.vm.vendor");
-            this.meta = new JavaInstall(root, version, vendor);
+            this.meta = new JavaInstall(root, version, vendor, probe.get("os.arch"));
 
         }
 
@@ -96,7 +96,18 @@ public class ProcessUtils {
         return new Result(lines, exitCode);
     }
 
+    /**
+     * Runs the command, adding everything it outputs to lines.
+     *
+     * @return The exit code of the process, or a negative number if it failed to run.
+     *         -3 means the calling thread was interrupted, in which case the process is killed.
+     */
     public static int runCommand(List<String> lines, String... args) {
+        if (Thread.currentThread().isInterrupted()) {
+            lines.add("Interrupted before starting");
+            return -3;
+        }
+
         Process process;
         try {
             process = new ProcessBuilder(args)
@@ -110,6 +121,12 @@ public class ProcessUtils {
         BufferedReader is = new BufferedReader(new InputStreamReader(process.getInputStream()));
 
         while (process.isAlive()) {
+            if (Thread.currentThread().isInterrupted()) {
+                process.destroyForcibly();
+                lines.add("Interrupted, process killed");
+                return -3;
+            }
+
             try {
                 while (is.ready()) {
                     String line = is.readLine();
@@ -123,6 +140,15 @@ public class ProcessUtils {
             }
         }
 
+        // Fast processes can exit before we've read everything they wrote
+        try {
+            for (String line = is.readLine(); line != null; line = is.readLine())
+                lines.add(line);
+        } catch (IOException e) {
+            getStackTrace(e, lines);
+            return -2;
+        }
+
         return process.exitValue();
     }
 
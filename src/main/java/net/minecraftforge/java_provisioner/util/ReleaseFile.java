@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.java_provisioner.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import net.minecraftforge.java_provisioner.JavaVersion;
+import net.minecraftforge.java_provisioner.api.IJavaInstall;
+
+/**
+ * The {@code release} file at the root of a java home. Every JDK since 9, and most builds of 8, have one.
+ * It answers a lot of what the java probe does without starting a JVM, but it is written by whoever built
+ * the JDK, so anything in it can be missing.
+ * <p>
+ * The format is a properties style {@code KEY="value"} per line.
+ */
+public final class ReleaseFile {
+    private final File home;
+    private final Map<String, String> values;
+
+    private ReleaseFile(File home, Map<String, String> values) {
+        this.home = home;
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * @return The release file of the specified java home, or null if it doesn't have one, or it can't be read
+     */
+    public static ReleaseFile read(File home) {
+        File file = new File(home, "release");
+        if (!file.isFile())
+            return null;
+
+        Map<String, String> values = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.ISO_8859_1)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int idx = line.indexOf('=');
+                if (idx <= 0 || line.startsWith("#"))
+                    continue;
+
+                String value = line.substring(idx + 1).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"')
+                    value = value.substring(1, value.length() - 1);
+                values.put(line.substring(0, idx).trim(), value);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new ReleaseFile(home, values);
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public Map<String, String> values() {
+        return values;
+    }
+
+    /** Such as {@code 17.0.9} or {@code 1.8.0_392} */
+    public String javaVersion() {
+        return get("JAVA_VERSION");
+    }
+
+    /** Such as {@code Eclipse Adoptium}, missing from a lot of older builds */
+    public String implementor() {
+        return get("IMPLEMENTOR");
+    }
+
+    /** Such as {@code x86_64} or {@code aarch64}, which isn't always what the JVM reports as {@code os.arch} */
+    public String osArch() {
+        return get("OS_ARCH");
+    }
+
+    /**
+     * The major version from {@link #javaVersion()}, or -1 if there isn't one
+     */
+    public int majorVersion() {
+        String raw = javaVersion();
+        JavaVersion version = raw == null ? null : JavaVersion.nullableParse(raw);
+        return version == null ? -1 : version.major();
+    }
+
+    /**
+     * The install this describes, with the same version and vendor the java probe would report for the usual
+     * JDK builds. Only the java executable is checked, nothing is run.
+     *
+     * @return The install, or null if this doesn't have a usable version and vendor, or there is no java executable
+     */
+    public IJavaInstall toInstall() {
+        String version = javaVersion();
+        String vendor = implementor();
+        if (version == null || vendor == null || JavaVersion.nullableParse(version) == null)
+            return null;
+
+        if (!new File(home, "bin/java" + OS.CURRENT.exe()).exists())
+            return null;
+
+        return new JavaInstall(home, version, vendor, osArch());
+    }
+
+    /** If this is an OpenJ9 JVM instead of HotSpot, which has its own flags for a lot of things */
+    public boolean isOpenJ9() {
+        String variant = get("JVM_VARIANT");
+        return variant != null && variant.toLowerCase(Locale.ENGLISH).contains("openj9");
+    }
+}